@@ -20,6 +20,7 @@ function initializeApp(markdownLoader) {
   if (document.getElementById("blog-list-container")) {
     // 首页 - 渲染博客列表
     markdownLoader.renderBlogList("blog-list-container");
+    initializeSearch(markdownLoader);
   } else if (document.getElementById("blog-content-container")) {
     // 博客详情页 - 渲染博客内容
     const postId = markdownLoader.getBlogFromUrl();
@@ -32,6 +33,22 @@ function initializeApp(markdownLoader) {
   }
 }
 
+function initializeSearch(markdownLoader) {
+  const form = document.getElementById("search-form");
+  if (!form || typeof BlogSearch === "undefined") return;
+
+  const blogSearch = new BlogSearch();
+  form.addEventListener("submit", (event) => {
+    event.preventDefault();
+    const query = document.getElementById("search-input").value.trim();
+    if (query) {
+      blogSearch.renderResults("blog-list-container", query);
+    } else {
+      markdownLoader.renderBlogList("blog-list-container");
+    }
+  });
+}
+
 function showError(message) {
   const container =
     document.getElementById("blog-list-container") ||
@@ -2,6 +2,9 @@ class MarkdownLoader {
   constructor() {
     this.rawBaseUrl = 'https://raw.githubusercontent.com/rechardjay/Nlob/master/blogs/';
     // this.rawBaseUrl = '../blogs/';
+    // 分片索引目录，由 notion-sync 生成
+    this.indexBaseUrl = 'blogs/index/';
+    this.manifestPromise = null;
     this.initMarked();
   }
 
@@ -98,8 +101,18 @@ class MarkdownLoader {
         return;
       }
 
-      const blogs = await this.getBlogList();
-      const blog = blogs.find((b) => b.id === postId);
+      // 优先使用同步时预渲染的HTML，不需要在浏览器里解析Markdown
+      const prerendered = await this.loadPrerenderedContent(postId);
+      if (prerendered) {
+        container.innerHTML = this.renderBlogPost(
+          prerendered.metadata,
+          prerendered.htmlContent,
+          prerendered.metadata
+        );
+        return;
+      }
+
+      const blog = await this.findBlog(postId);
 
       if (!blog) {
         container.innerHTML = this.getNotFoundError(
@@ -126,6 +139,9 @@ class MarkdownLoader {
   renderBlogPost(metadata, htmlContent, blogInfo) {
     // 使用博客信息中的标题，而不是Front Matter的（避免重复）
     const title = blogInfo.title || metadata.title || "无标题";
+    const date = blogInfo.date || metadata.date || "未知日期";
+    // 标签可能是数组，转成字符串后再转义
+    const tags = blogInfo.tags || metadata.tags;
 
     // 更新页面标题
     document.title = `${title} - 我的博客`;
@@ -135,12 +151,14 @@ class MarkdownLoader {
                 <header class="blog-header">
                     <h1 class="blog-title">${this.escapeHtml(title)}</h1>
                     <div class="blog-meta">
-                        <span class="publish-date">发布于 ${
-                          blogInfo.date || metadata.date || "未知日期"
-                        }</span>
+                        <span class="publish-date">发布于 ${this.escapeHtml(
+                          String(date)
+                        )}</span>
                         ${
-                          blogInfo.tags
-                            ? `<span class="blog-tags"> | 标签: ${blogInfo.tags}</span>`
+                          tags
+                            ? `<span class="blog-tags"> | 标签: ${this.escapeHtml(
+                                String(tags)
+                              )}</span>`
                             : ""
                         }
                     </div>
@@ -183,6 +201,64 @@ class MarkdownLoader {
     }
   }
 
+  // 加载分片索引清单，失败时返回null，调用方退回到完整索引
+  loadIndexManifest() {
+    if (!this.manifestPromise) {
+      this.manifestPromise = this.fetchJson(`${this.indexBaseUrl}manifest.json`)
+        .catch((error) => {
+          console.warn("无法加载分片索引，使用完整索引:", error);
+          return null;
+        });
+    }
+    return this.manifestPromise;
+  }
+
+  async fetchJson(url) {
+    const response = await fetch(url);
+    if (!response.ok) {
+      throw new Error(`HTTP error! status: ${response.status}`);
+    }
+    return await response.json();
+  }
+
+  // 按id查找文章，只下载id到文件名的映射；标题等信息取自文章的Front Matter
+  async findBlog(postId) {
+    const manifest = await this.loadIndexManifest();
+    if (manifest) {
+      try {
+        const ids = await this.fetchJson(`${this.indexBaseUrl}ids.json`);
+        return ids[postId] ? { id: postId, filename: ids[postId] } : null;
+      } catch (error) {
+        console.warn("无法加载文章映射，使用完整索引:", error);
+      }
+    }
+    const blogs = await this.getBlogList();
+    return blogs.find((b) => b.id === postId);
+  }
+
+  // 加载当前列表视图需要的分片：某个标签或某一页
+  async loadListShard(page, tag) {
+    const manifest = await this.loadIndexManifest();
+    if (!manifest) {
+      return null;
+    }
+    if (tag) {
+      const tagInfo = manifest.tags.find((t) => t.name === tag);
+      const blogs = tagInfo
+        ? await this.fetchJson(`${this.indexBaseUrl}${tagInfo.file}`)
+        : [];
+      return { blogs, page: 1, pages: 1 };
+    }
+    if (manifest.pages === 0) {
+      return { blogs: [], page: 1, pages: 1 };
+    }
+    const current = Math.min(Math.max(page, 1), manifest.pages);
+    const blogs = await this.fetchJson(
+      `${this.indexBaseUrl}index-${current}.json`
+    );
+    return { blogs, page: current, pages: manifest.pages };
+  }
+
   // 加载博客索引
   async loadBlogIndex() {
     try {
@@ -216,6 +292,26 @@ class MarkdownLoader {
     ];
   }
 
+  // 加载预渲染的HTML正文和元数据，不存在时返回null，调用方退回到Markdown
+  async loadPrerenderedContent(postId) {
+    try {
+      const base = `${this.rawBaseUrl}html/${encodeURIComponent(postId)}`;
+      const [metadata, htmlContent] = await Promise.all([
+        this.fetchJson(`${base}.json`),
+        fetch(`${base}.html`).then((response) => {
+          if (!response.ok) {
+            throw new Error(`HTTP error! status: ${response.status}`);
+          }
+          return response.text();
+        }),
+      ]);
+      return { metadata, htmlContent };
+    } catch (error) {
+      console.warn("没有预渲染的文章，使用Markdown:", error);
+      return null;
+    }
+  }
+
   // 加载单个博客内容
   async loadBlogContent(filename) {
     try {
@@ -244,7 +340,23 @@ class MarkdownLoader {
     container.innerHTML = '<div class="loading">加载中...</div>';
 
     try {
-      const blogs = await this.getBlogList();
+      const urlParams = new URLSearchParams(window.location.search);
+      const tag = urlParams.get("tag");
+      const shard = await this.loadListShard(
+        parseInt(urlParams.get("page"), 10) || 1,
+        tag
+      );
+      let blogs;
+      if (shard) {
+        blogs = shard.blogs;
+      } else {
+        blogs = await this.getBlogList();
+        if (tag) {
+          blogs = blogs.filter(
+            (b) => b.tags && b.tags.split(",").includes(tag)
+          );
+        }
+      }
 
       if (blogs.length === 0) {
         container.innerHTML = '<div class="loading">暂无博客文章</div>';
@@ -264,18 +376,51 @@ class MarkdownLoader {
                     <div class="blog-excerpt">${this.escapeHtml(
                       blog.excerpt
                     )}</div>
+                    ${this.renderTagLinks(blog.tags)}
                 </article>
             `
         )
         .join("");
 
-      container.innerHTML = html;
+      container.innerHTML = html + this.renderPagination(shard, tag);
     } catch (error) {
       console.error("渲染博客列表失败:", error);
       container.innerHTML = '<div class="error">加载博客列表失败</div>';
     }
   }
 
+  // 文章卡片上的标签链接
+  renderTagLinks(tags) {
+    if (!tags) return "";
+    const links = tags
+      .split(",")
+      .map(
+        (tag) =>
+          `<a href="index.html?tag=${encodeURIComponent(
+            tag
+          )}">${this.escapeHtml(tag)}</a>`
+      )
+      .join(" ");
+    return `<div class="blog-meta">标签: ${links}</div>`;
+  }
+
+  // 分页导航，标签视图只显示返回全部文章的链接
+  renderPagination(shard, tag) {
+    if (tag) {
+      return `<div class="blog-nav"><a class="btn" href="index.html">全部文章</a></div>`;
+    }
+    if (!shard || shard.pages <= 1) return "";
+    const prev =
+      shard.page > 1
+        ? `<a class="btn" href="index.html?page=${shard.page - 1}">上一页</a>`
+        : "";
+    const next =
+      shard.page < shard.pages
+        ? `<a class="btn" href="index.html?page=${shard.page + 1}">下一页</a>`
+        : "";
+    return `<div class="blog-nav">${prev} 第 ${shard.page} / ${shard.pages} 页 ${next}</div>`;
+  }
+
   // HTML转义
   escapeHtml(unsafe) {
     if (!unsafe) return "";
@@ -0,0 +1,180 @@
+// 站内搜索：使用 notion-sync 生成的 blogs/search/ 倒排索引，
+// 只下载查询词所在的分片
+class BlogSearch {
+  constructor() {
+    this.baseUrl = "blogs/search/";
+    this.maxWordLength = 32;
+    this.manifestPromise = null;
+    this.docsPromise = null;
+    this.shardPromises = new Map();
+  }
+
+  // 与 SearchTokenizer 相同的分词规则：拉丁字母和数字按单词，中日韩文字按二元组
+  tokenize(text) {
+    const terms = new Set();
+    const cjk = /[\p{Script=Han}\p{Script=Hiragana}\p{Script=Katakana}\p{Script=Hangul}]/u;
+    const wordChar = /[\p{L}\p{N}]/u;
+    let word = "";
+    let lastCjk = null;
+    let cjkRun = 0;
+
+    const flushWord = () => {
+      if (word && word.length <= this.maxWordLength) terms.add(word);
+      word = "";
+    };
+    const flushCjk = () => {
+      if (cjkRun === 1) terms.add(lastCjk);
+      lastCjk = null;
+      cjkRun = 0;
+    };
+
+    for (const ch of text) {
+      if (cjk.test(ch)) {
+        flushWord();
+        if (lastCjk !== null) terms.add(lastCjk + ch);
+        lastCjk = ch;
+        cjkRun++;
+      } else {
+        flushCjk();
+        if (wordChar.test(ch)) {
+          word += ch.toLowerCase();
+        } else {
+          flushWord();
+        }
+      }
+    }
+    flushWord();
+    flushCjk();
+    return [...terms];
+  }
+
+  // Java String.hashCode()，用于定位词所在的分片
+  hashCode(term) {
+    let h = 0;
+    for (let i = 0; i < term.length; i++) {
+      h = (Math.imul(31, h) + term.charCodeAt(i)) | 0;
+    }
+    return h;
+  }
+
+  async fetchJson(url) {
+    const response = await fetch(url);
+    if (!response.ok) {
+      throw new Error(`HTTP error! status: ${response.status}`);
+    }
+    return await response.json();
+  }
+
+  loadManifest() {
+    if (!this.manifestPromise) {
+      this.manifestPromise = this.fetchJson(`${this.baseUrl}manifest.json`);
+    }
+    return this.manifestPromise;
+  }
+
+  loadDocs() {
+    if (!this.docsPromise) {
+      this.docsPromise = this.fetchJson(`${this.baseUrl}docs.json`);
+    }
+    return this.docsPromise;
+  }
+
+  loadShard(shard) {
+    if (!this.shardPromises.has(shard)) {
+      this.shardPromises.set(
+        shard,
+        this.fetchJson(`${this.baseUrl}terms-${shard}.json`)
+      );
+    }
+    return this.shardPromises.get(shard);
+  }
+
+  // 返回包含全部查询词的文章，按 tf-idf 得分排序
+  async search(query) {
+    const terms = this.tokenize(query);
+    if (terms.length === 0) return [];
+
+    const manifest = await this.loadManifest();
+    const shardOf = (term) =>
+      ((this.hashCode(term) % manifest.shards) + manifest.shards) %
+      manifest.shards;
+    const shards = await Promise.all(
+      terms.map((term) => this.loadShard(shardOf(term)))
+    );
+
+    let scores = null;
+    for (let i = 0; i < terms.length; i++) {
+      // 查询词可能是 constructor、__proto__ 等原型上的属性名，只认分片自身的键
+      const postings = Object.hasOwn(shards[i], terms[i])
+        ? shards[i][terms[i]]
+        : undefined;
+      if (!postings) return [];
+
+      // 解码差值编码的倒排表
+      const idf = Math.log(1 + manifest.docs / (postings.length / 2));
+      const termScores = new Map();
+      let doc = 0;
+      for (let p = 0; p < postings.length; p += 2) {
+        doc += postings[p];
+        termScores.set(doc, postings[p + 1] * idf);
+      }
+
+      if (scores === null) {
+        scores = termScores;
+      } else {
+        const merged = new Map();
+        for (const [d, score] of scores) {
+          if (termScores.has(d)) merged.set(d, score + termScores.get(d));
+        }
+        scores = merged;
+      }
+      if (scores.size === 0) return [];
+    }
+
+    const docs = await this.loadDocs();
+    return [...scores.entries()]
+      .sort((a, b) => b[1] - a[1])
+      .map(([d, score]) => ({ ...docs[d], score }));
+  }
+
+  async renderResults(containerId, query) {
+    const container = document.getElementById(containerId);
+    if (!container) return;
+
+    container.innerHTML = '<div class="loading">搜索中...</div>';
+    try {
+      const results = await this.search(query);
+      if (results.length === 0) {
+        container.innerHTML = '<div class="loading">没有找到相关文章</div>';
+        return;
+      }
+      container.innerHTML = results
+        .map(
+          (blog) => `
+                <article class="blog-card">
+                    <h4>
+                        <a href="blog.html?post=${blog.id}">
+                            ${this.escapeHtml(blog.title)}
+                        </a>
+                    </h4>
+                    <div class="blog-meta">发布于 ${blog.date}</div>
+                </article>
+            `
+        )
+        .join("");
+    } catch (error) {
+      console.error("搜索失败:", error);
+      container.innerHTML = '<div class="error">搜索索引加载失败</div>';
+    }
+  }
+
+  escapeHtml(unsafe) {
+    if (!unsafe) return "";
+    return unsafe
+      .replace(/&/g, "&amp;")
+      .replace(/</g, "&lt;")
+      .replace(/>/g, "&gt;")
+      .replace(/"/g, "&quot;")
+      .replace(/'/g, "&#039;");
+  }
+}
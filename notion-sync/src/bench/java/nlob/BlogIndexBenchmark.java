@@ -0,0 +1,111 @@
+package nlob;
+
+import nlob.entity.IndexEntry;
+import nlob.utils.Log;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文章索引的加载、合并本次更新的条目和写出
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlogIndexBenchmark {
+
+    @Param({"1000", "10000"})
+    private int entries;
+
+    /** 每次同步更新的文章数 */
+    @Param({"50"})
+    private int updates;
+
+    private Path file;
+    private BlogIndex index;
+    private List<IndexEntry> changed;
+    private Log.Level logLevel;
+
+    @Setup
+    public void setup() throws IOException {
+        // load 每次都会输出日志
+        logLevel = Log.getLevel();
+        Log.setLevel(Log.Level.WARN);
+
+        SyntheticWorkspace workspace = new SyntheticWorkspace(42);
+        List<IndexEntry> all = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            all.add(entry("page-" + i, workspace.title(), i));
+        }
+        file = Files.createTempFile("index", ".json");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            BlogIndex.writeEntries(all, writer);
+        }
+        index = BlogIndex.load(file);
+
+        changed = new ArrayList<>(updates);
+        for (int i = 0; i < updates; i++) {
+            changed.add(entry("page-" + (i * (entries / updates)), workspace.title(), entries + i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Log.setLevel(logLevel);
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public BlogIndex load() {
+        return BlogIndex.load(file);
+    }
+
+    @Benchmark
+    public BlogIndex merge() {
+        BlogIndex loaded = BlogIndex.load(file);
+        for (IndexEntry entry : changed) {
+            loaded.put(entry);
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        index.write(Writer.nullWriter());
+    }
+
+    private static IndexEntry entry(String id, String title, int day) {
+        IndexEntry entry = new IndexEntry();
+        entry.setId(id);
+        entry.setFilename(title + ".md");
+        entry.setTitle(title);
+        String date = LocalDate.of(2020, 1, 1).plusDays(day % 2000).toString();
+        entry.setDate(date);
+        entry.setUpdate(date);
+        entry.setExcerpt("这是一段摘要 " + title);
+        entry.setTags("Java,性能");
+        return entry;
+    }
+}
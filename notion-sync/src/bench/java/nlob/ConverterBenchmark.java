@@ -0,0 +1,64 @@
+package nlob;
+
+import nlob.entity.block.Block;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 块树转换为Markdown和HTML。
+ * <p>
+ * toMarkdown 包含拼接整个字符串的开销；streamMarkdown 直接写到空Writer，只衡量转换本身
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterBenchmark {
+
+    @Param({"FLAT", "NESTED", "TABLE", "RICH_TEXT", "MIXED"})
+    private SyntheticWorkspace.Shape shape;
+
+    @Param({"100", "2000"})
+    private int blocks;
+
+    @Param({"6"})
+    private int depth;
+
+    private List<Block> tree;
+
+    @Setup
+    public void setup() {
+        tree = new SyntheticWorkspace(42).page(shape, blocks, depth);
+    }
+
+    @Benchmark
+    public String toMarkdown() {
+        return MarkdownConverter.toMarkdown(tree);
+    }
+
+    @Benchmark
+    public void streamMarkdown() throws IOException {
+        new MarkdownConverter(Writer.nullWriter()).write(tree);
+    }
+
+    @Benchmark
+    public String toHtml() {
+        return HtmlConverter.toHtml(tree);
+    }
+}
@@ -0,0 +1,354 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import nlob.entity.block.Block;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟的Notion API，用于离线压测。
+ * <p>
+ * 提供 POST /v1/databases/{id}/query 和 GET /v1/blocks/{id}/children，支持 page_size 和 start_cursor 分页。
+ * 页面和块由 {@link SyntheticWorkspace} 按种子生成：第i个页面的id为"p{i}"，其中的块id为"p{i}-{序号}"，
+ * 请求子块时根据id重新生成所属页面的块树，不需要把整个工作区放在内存里。
+ * <p>
+ * 可以注入延迟（多种分布）、成批的429和随机的5xx
+ */
+public class FakeNotionServer implements AutoCloseable {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Instant BASE_TIME = Instant.parse("2024-01-01T00:00:00Z");
+    /** Notion的时间格式总是带毫秒 */
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+    /** 缓存最近生成的块树，同一页面的子块请求通常是连续的 */
+    private static final int TREE_CACHE_SIZE = 256;
+
+    /**
+     * 延迟分布，参数为平均延迟
+     */
+    public enum Latency {
+        /** 固定延迟 */
+        FIXED,
+        /** 0到两倍平均值之间均匀分布 */
+        UNIFORM,
+        /** 指数分布 */
+        EXPONENTIAL,
+        /** 对数正态分布，长尾 */
+        LOGNORMAL;
+
+        long sample(double mean) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            switch (this) {
+                case UNIFORM:
+                    return (long) (random.nextDouble() * 2 * mean);
+                case EXPONENTIAL:
+                    return (long) (-Math.log(1 - random.nextDouble()) * mean);
+                case LOGNORMAL:
+                    // sigma=1 时均值为 e^(mu+1/2)
+                    return (long) Math.exp(Math.log(mean) - 0.5 + random.nextGaussian());
+                case FIXED:
+                default:
+                    return (long) mean;
+            }
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long seed;
+    private final int pages;
+    private final int blocksPerPage;
+    private final int depth;
+
+    private double latencyMillis = 0;
+    private Latency latency = Latency.FIXED;
+    private int throttleEvery = 0;
+    private int throttleBurst = 0;
+    private double retryAfterSeconds = 1;
+    private double errorRate = 0;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong queryRequests = new AtomicLong();
+    private final AtomicLong blockRequests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private final Map<Integer, Map<String, List<Block>>> trees = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Map<String, List<Block>>> eldest) {
+                    return size() > TREE_CACHE_SIZE;
+                }
+            });
+
+    /**
+     * @param pages         数据库中的页面数
+     * @param blocksPerPage 每个页面的块数（包括嵌套块）
+     * @param depth         最大嵌套深度
+     */
+    public FakeNotionServer(long seed, int pages, int blocksPerPage, int depth) throws IOException {
+        this.seed = seed;
+        this.pages = pages;
+        this.blocksPerPage = blocksPerPage;
+        this.depth = depth;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "fake-notion-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/v1/", this::handle);
+    }
+
+    /**
+     * 每个请求注入的延迟
+     */
+    public void setLatency(Latency latency, double meanMillis) {
+        this.latency = latency;
+        this.latencyMillis = meanMillis;
+    }
+
+    /**
+     * 每 every 个请求中，末尾的 burst 个返回429。窗口不从第0个请求开始，
+     * 避免串行的第一次数据库查询连续被限流。burst 不超过客户端的重试次数（5）时同步总能完成
+     */
+    public void setThrottle(int every, int burst, double retryAfterSeconds) {
+        this.throttleEvery = every;
+        this.throttleBurst = burst;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * 随机返回5xx的比例
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * API根地址，传给 LiveTransport
+     */
+    public String getApiBase() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getQueryRequests() {
+        return queryRequests.get();
+    }
+
+    public long getBlockRequests() {
+        return blockRequests.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            long n = requests.getAndIncrement();
+            if (latencyMillis > 0) {
+                Thread.sleep(latency.sample(latencyMillis));
+            }
+            if (throttleEvery > 0 && n % throttleEvery >= throttleEvery - throttleBurst) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", Double.toString(retryAfterSeconds));
+                send(exchange, 429, error(429, "rate_limited", "Rate limited"));
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                send(exchange, 503, error(503, "service_unavailable", "Injected failure"));
+                return;
+            }
+
+            URI uri = exchange.getRequestURI();
+            String[] parts = uri.getPath().split("/");
+            // /v1/databases/{id}/query 或 /v1/blocks/{id}/children
+            if (parts.length == 5 && "databases".equals(parts[2]) && "query".equals(parts[4])) {
+                queryRequests.incrementAndGet();
+                JSONObject body = JSON.parseObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                send(exchange, 200, query(body != null ? body : new JSONObject()));
+            } else if (parts.length == 5 && "blocks".equals(parts[2]) && "children".equals(parts[4])) {
+                blockRequests.incrementAndGet();
+                Map<String, String> params = queryParams(uri.getRawQuery());
+                String response = children(parts[3], params.get("start_cursor"), pageSize(params.get("page_size")));
+                if (response == null) {
+                    send(exchange, 404, error(404, "object_not_found", "Could not find block with ID: " + parts[3]));
+                } else {
+                    send(exchange, 200, response);
+                }
+            } else {
+                send(exchange, 404, error(404, "invalid_request_url", "Invalid request URL."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        } catch (RuntimeException e) {
+            send(exchange, 500, error(500, "internal_server_error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    /**
+     * 按编辑时间升序返回页面，游标为下一页的起始序号。
+     * 第i个页面的编辑时间为基准时间后i分钟，只支持按 last_edited_time 的 on_or_after 过滤
+     */
+    private String query(JSONObject body) {
+        int start = body.getString("start_cursor") != null ? Integer.parseInt(body.getString("start_cursor")) : firstEditedOnOrAfter(body);
+        int size = pageSize(body.getString("page_size"));
+        int end = Math.min(pages, start + size);
+        List<JSONObject> results = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            SyntheticWorkspace workspace = workspace(i);
+            String editedTime = TIME_FORMAT.format(BASE_TIME.plusSeconds(i * 60L));
+            results.add(workspace.pageJson("p" + i, editedTime, workspace.title()));
+        }
+        return SyntheticWorkspace.queryResultJson(results, end < pages ? Integer.toString(end) : null);
+    }
+
+    private static int firstEditedOnOrAfter(JSONObject body) {
+        JSONObject filter = body.getJSONObject("filter");
+        if (filter == null || filter.getJSONObject("last_edited_time") == null) {
+            return 0;
+        }
+        String since = filter.getJSONObject("last_edited_time").getString("on_or_after");
+        if (since == null) {
+            return 0;
+        }
+        long seconds = Instant.parse(since).getEpochSecond() - BASE_TIME.getEpochSecond();
+        return (int) Math.max(0, Math.floorDiv(seconds + 59, 60));
+    }
+
+    /**
+     * 一页子块，块不存在时返回null
+     */
+    private String children(String blockId, String cursor, int size) {
+        int page = pageIndex(blockId);
+        if (page < 0 || page >= pages) {
+            return null;
+        }
+        List<Block> children = trees.computeIfAbsent(page, this::generateTree).get(blockId);
+        if (children == null) {
+            return null;
+        }
+        int start = cursor != null ? Integer.parseInt(cursor) : 0;
+        int end = Math.min(children.size(), start + size);
+        return SyntheticWorkspace.blockListJson(children.subList(Math.min(start, end), end),
+                end < children.size() ? Integer.toString(end) : null);
+    }
+
+    /**
+     * 生成页面的块树，索引为块id（页面本身为"p{i}"）到子块列表
+     */
+    private Map<String, List<Block>> generateTree(int page) {
+        List<Block> blocks = workspace(page).page(SyntheticWorkspace.Shape.MIXED, blocksPerPage, depth);
+        Map<String, List<Block>> byParent = new HashMap<>();
+        byParent.put("p" + page, blocks);
+        indexChildren(blocks, byParent);
+        return byParent;
+    }
+
+    private static void indexChildren(List<Block> blocks, Map<String, List<Block>> byParent) {
+        for (Block block : blocks) {
+            if (block.isHasChildren()) {
+                byParent.put(block.getId(), block.getChildren());
+                indexChildren(block.getChildren(), byParent);
+            }
+        }
+    }
+
+    /**
+     * 每个页面的生成器只由种子和页面序号决定，重新生成得到同样的数据
+     */
+    private SyntheticWorkspace workspace(int page) {
+        return new SyntheticWorkspace(seed * 1_000_003L + page, "p" + page);
+    }
+
+    private static int pageIndex(String blockId) {
+        if (!blockId.startsWith("p")) {
+            return -1;
+        }
+        int dash = blockId.indexOf('-');
+        try {
+            return Integer.parseInt(dash < 0 ? blockId.substring(1) : blockId.substring(1, dash));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int pageSize(String value) {
+        if (value == null) {
+            return MAX_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(value)));
+    }
+
+    private static Map<String, String> queryParams(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String error(int status, String code, String message) {
+        return JSONObject.of("object", "error", "status", status, "code", code, "message", message).toJSONString();
+    }
+
+    private static void send(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package nlob;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import nlob.utils.Log;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 离线压测：启动 {@link FakeNotionServer}，在同一个JVM里对它运行 {@link NotionSync#sync()}，
+ * 报告耗时、请求数、堆内存峰值和GC停顿。
+ * <p>
+ * 用法：mvn -P bench package 后运行
+ * <pre>
+ * java -Xmx1g -cp target/benchmarks.jar nlob.LoadTest --pages=10000 --blocks-per-page=50 \
+ *      --latency=20 --latency-distribution=LOGNORMAL --throttle-every=1000 --throttle-burst=4 --error-rate=0.01
+ * </pre>
+ * 默认日志级别为WARN（--log-level 可以修改），每次运行的详细指标见输出目录下的 .notion-sync/reports。
+ * 第一次运行是全量同步；--runs 大于1时，之后的运行按水位线增量同步，可以观察缓存的效果
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                System.err.println("错误: 未知参数 " + arg);
+                System.exit(1);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq > 0 ? arg.substring(2, eq) : arg.substring(2), eq > 0 ? arg.substring(eq + 1) : "true");
+        }
+
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int pages = Integer.parseInt(options.getOrDefault("pages", "1000"));
+        int blocksPerPage = Integer.parseInt(options.getOrDefault("blocks-per-page", "50"));
+        int depth = Integer.parseInt(options.getOrDefault("depth", "4"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "1"));
+        boolean keepOutput = options.containsKey("keep-output");
+        // 默认只输出警告，避免控制台输出影响耗时
+        Log.setLevel(Log.Level.valueOf(options.getOrDefault("log-level", "WARN")));
+
+        try (FakeNotionServer server = new FakeNotionServer(seed, pages, blocksPerPage, depth)) {
+            server.setLatency(FakeNotionServer.Latency.valueOf(options.getOrDefault("latency-distribution", "FIXED")),
+                    Double.parseDouble(options.getOrDefault("latency", "0")));
+            server.setThrottle(Integer.parseInt(options.getOrDefault("throttle-every", "0")),
+                    Integer.parseInt(options.getOrDefault("throttle-burst", "0")),
+                    Double.parseDouble(options.getOrDefault("retry-after", "0.2")));
+            server.setErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")));
+            server.start();
+
+            Path outputDir = options.containsKey("output")
+                    ? Paths.get(options.get("output"))
+                    : Files.createTempDirectory("notion-load-test");
+            GcMonitor gc = new GcMonitor();
+            List<String> reports = new ArrayList<>();
+            try {
+                for (int run = 1; run <= runs; run++) {
+                    NotionSync sync = new NotionSync("load-test", "load-test", outputDir.toString());
+                    sync.setApiBase(server.getApiBase());
+                    sync.setLocalizeImages(false);
+                    sync.setRequestsPerSecond(Double.parseDouble(options.getOrDefault("requests-per-second", "1000")));
+                    sync.setFetchConcurrency(Integer.parseInt(options.getOrDefault("fetch-concurrency",
+                            String.valueOf(NotionClient.DEFAULT_FETCH_CONCURRENCY))));
+                    sync.setPageParallelism(Integer.parseInt(options.getOrDefault("page-parallelism",
+                            String.valueOf(NotionClient.DEFAULT_PAGE_PARALLELISM))));
+                    sync.setUseBlockCache(!options.containsKey("no-cache"));
+
+                    long requestsBefore = server.getRequests();
+                    long throttledBefore = server.getThrottled();
+                    long errorsBefore = server.getErrors();
+                    gc.reset();
+                    long start = System.nanoTime();
+                    if (!sync.sync()) {
+                        System.err.println("第" + run + "次同步失败");
+                        System.exit(1);
+                    }
+                    long wallMillis = (System.nanoTime() - start) / 1_000_000;
+                    gc.stop();
+
+                    long requests = server.getRequests() - requestsBefore;
+                    reports.add(String.format("第%d次: 耗时 %d ms, 请求 %d 个 (%.0f 个/秒), 429 %d 个, 5xx %d 个, "
+                                    + "堆峰值 %d MB, GC %d 次, 停顿合计 %d ms, 最长 %d ms",
+                            run, wallMillis, requests, requests * 1000.0 / Math.max(1, wallMillis),
+                            server.getThrottled() - throttledBefore, server.getErrors() - errorsBefore,
+                            gc.getPeakHeapBytes() / (1024 * 1024), gc.getCount(), gc.getTotalPauseMillis(), gc.getMaxPauseMillis()));
+                }
+            } finally {
+                gc.close();
+                if (!keepOutput && !options.containsKey("output")) {
+                    deleteRecursively(outputDir);
+                }
+            }
+
+            System.out.println();
+            System.out.printf("=== 压测结果: %d 个页面, 每页约 %d 个块, 深度 %d ===%n", pages, blocksPerPage, depth);
+            for (String report : reports) {
+                System.out.println(report);
+            }
+            System.out.println("查询请求 " + server.getQueryRequests() + " 个, 子块请求 " + server.getBlockRequests() + " 个");
+            if (keepOutput) {
+                System.out.println("输出目录: " + outputDir);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * 通过GC通知统计停顿次数和时长，并定时采样已用堆内存的峰值
+     */
+    private static final class GcMonitor implements NotificationListener, AutoCloseable {
+        private static final long SAMPLE_INTERVAL_MILLIS = 20;
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalPause = new AtomicLong();
+        private final AtomicLong maxPause = new AtomicLong();
+        private final AtomicLong peakHeap = new AtomicLong();
+        private final Thread sampler;
+        private volatile boolean sampling;
+
+        GcMonitor() {
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener(this, null, null);
+                }
+            }
+            sampler = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    if (sampling) {
+                        peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    }
+                    try {
+                        Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "heap-sampler");
+            sampler.setDaemon(true);
+            sampler.start();
+        }
+
+        void reset() {
+            count.set(0);
+            totalPause.set(0);
+            maxPause.set(0);
+            peakHeap.set(memory.getHeapMemoryUsage().getUsed());
+            sampling = true;
+        }
+
+        void stop() {
+            sampling = false;
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!sampling || !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            // 并发收集器的周期与应用线程并行，不计为停顿
+            if (info.getGcName().contains("Concurrent") || info.getGcName().contains("Cycles")) {
+                return;
+            }
+            long duration = info.getGcInfo().getDuration();
+            count.incrementAndGet();
+            totalPause.addAndGet(duration);
+            maxPause.accumulateAndGet(duration, Math::max);
+            // 回收前的用量也是一个峰值
+            long before = info.getGcInfo().getMemoryUsageBeforeGc().values().stream()
+                    .mapToLong(usage -> usage.getUsed()).sum();
+            peakHeap.accumulateAndGet(before, Math::max);
+        }
+
+        long getCount() {
+            return count.get();
+        }
+
+        long getTotalPauseMillis() {
+            return totalPause.get();
+        }
+
+        long getMaxPauseMillis() {
+            return maxPause.get();
+        }
+
+        long getPeakHeapBytes() {
+            return peakHeap.get();
+        }
+
+        @Override
+        public void close() {
+            sampler.interrupt();
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter emitter) {
+                    try {
+                        emitter.removeNotificationListener(this);
+                    } catch (ListenerNotFoundException e) {
+                        // 构造时没有注册到这个收集器
+                    }
+                }
+            }
+        }
+    }
+}
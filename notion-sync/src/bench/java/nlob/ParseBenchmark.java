@@ -0,0 +1,92 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSONObject;
+import nlob.entity.BlogPostDO;
+import nlob.entity.NotionPage;
+import nlob.entity.block.Block;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析接口响应：子块列表和数据库查询结果的流式解码、页面标题和标签提取、文件名生成。
+ * 每次调用处理一页（最多100条）结果
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"FLAT", "RICH_TEXT", "MIXED"})
+    private SyntheticWorkspace.Shape shape;
+
+    @Param({"100"})
+    private int pageSize;
+
+    private byte[] blockList;
+    private byte[] queryResult;
+    private List<JSONObject> properties;
+    private List<BlogPostDO> posts;
+
+    @Setup
+    public void setup() {
+        SyntheticWorkspace workspace = new SyntheticWorkspace(42);
+        List<Block> blocks = workspace.page(shape, pageSize, 1);
+        blockList = SyntheticWorkspace.blockListJson(blocks.subList(0, Math.min(pageSize, blocks.size())), "cursor")
+                .getBytes(StandardCharsets.UTF_8);
+        queryResult = workspace.queryResultJson(pageSize, "cursor").getBytes(StandardCharsets.UTF_8);
+
+        properties = new ArrayList<>();
+        posts = new ArrayList<>();
+        for (NotionPage page : NotionDecoder.decodePageList(new ByteArrayInputStream(queryResult)).results()) {
+            properties.add(page.getProperties());
+            BlogPostDO post = new BlogPostDO();
+            post.setId(page.getId());
+            post.setTitle(NotionClient.extractTitle(page.getProperties()));
+            posts.add(post);
+        }
+    }
+
+    @Benchmark
+    public CursorPaginator.CursorPage<Block> decodeBlockList() {
+        return NotionDecoder.decodeBlockList(new ByteArrayInputStream(blockList));
+    }
+
+    @Benchmark
+    public CursorPaginator.CursorPage<NotionPage> decodePageList() {
+        return NotionDecoder.decodePageList(new ByteArrayInputStream(queryResult));
+    }
+
+    @Benchmark
+    public void extractProperties(Blackhole blackhole) {
+        for (JSONObject page : properties) {
+            blackhole.consume(NotionClient.extractTitle(page));
+            blackhole.consume(NotionClient.extractTags(page));
+        }
+    }
+
+    @Benchmark
+    public void filename(Blackhole blackhole) {
+        for (BlogPostDO post : posts) {
+            blackhole.consume(post.getFilename());
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import nlob.entity.block.Block;
+import nlob.entity.block.BlockType;
+import nlob.entity.block.RichText;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * 基准测试用的合成数据：按种子生成块树、页面属性和接口响应JSON，同样的种子得到同样的数据
+ */
+public class SyntheticWorkspace {
+    public static final String EDITED_TIME = "2024-01-01T00:00:00.000Z";
+
+    /**
+     * 页面结构
+     */
+    public enum Shape {
+        /** 只有顶层段落和标题 */
+        FLAT,
+        /** 列表、折叠块和引用层层嵌套 */
+        NESTED,
+        /** 以表格为主 */
+        TABLE,
+        /** 段落中有大量不同样式、颜色和链接的富文本片段 */
+        RICH_TEXT,
+        /** 各种块混合，接近真实文章 */
+        MIXED
+    }
+
+    private static final String[] WORDS = {
+            "notion", "sync", "markdown", "index", "cache", "block", "render", "java", "stream", "shard",
+            "同步", "博客", "索引", "缓存", "性能", "渲染", "文章", "标签", "分页", "并发"
+    };
+    private static final String[] COLORS = {"default", "gray", "red", "blue", "green_background", "yellow"};
+    private static final String[] TAGS = {"Java", "前端", "性能", "数据库", "工具", "随笔", "Notion", "算法"};
+
+    private final Random random;
+    private final String idPrefix;
+    private int nextId;
+
+    public SyntheticWorkspace(long seed) {
+        this(seed, null);
+    }
+
+    /**
+     * @param idPrefix 不为null时块id为"前缀-序号"，可以从id找回所属页面；为null时使用随机UUID
+     */
+    public SyntheticWorkspace(long seed, String idPrefix) {
+        this.random = new Random(seed);
+        this.idPrefix = idPrefix;
+    }
+
+    /**
+     * 生成一个页面的块树
+     *
+     * @param blocks 块的总数（包括嵌套块），结果可能略多
+     * @param depth  NESTED 和 MIXED 的最大嵌套深度
+     */
+    public List<Block> page(Shape shape, int blocks, int depth) {
+        List<Block> result = new ArrayList<>();
+        int[] remaining = {blocks};
+        while (remaining[0] > 0) {
+            switch (shape) {
+                case FLAT:
+                    result.add(remaining[0] % 10 == 0 ? heading() : paragraph(3));
+                    remaining[0]--;
+                    break;
+                case NESTED:
+                    result.add(nestedList(depth, remaining));
+                    break;
+                case TABLE:
+                    result.add(table(6, 20, remaining));
+                    break;
+                case RICH_TEXT:
+                    result.add(paragraph(24));
+                    remaining[0]--;
+                    break;
+                case MIXED:
+                default:
+                    result.add(mixed(depth, remaining));
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 页面属性，标题属性名为"名称"，标签属性名为"多选"，与真实数据库一致
+     */
+    public JSONObject properties(String title) {
+        JSONObject properties = new JSONObject();
+        properties.put("名称", JSONObject.of("id", "title", "type", "title", "title",
+                JSONArray.of(JSONObject.of("type", "text", "plain_text", title, "text", JSONObject.of("content", title)))));
+        JSONArray tags = new JSONArray();
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            tags.add(JSONObject.of("id", "t" + i, "name", TAGS[random.nextInt(TAGS.length)], "color", "blue"));
+        }
+        properties.put("多选", JSONObject.of("id", "tags", "type", "multi_select", "multi_select", tags));
+        properties.put("创建时间", JSONObject.of("id", "created", "type", "created_time", "created_time", EDITED_TIME));
+        return properties;
+    }
+
+    /**
+     * 中英文混合、带标点的标题
+     */
+    public String title() {
+        StringBuilder title = new StringBuilder();
+        int words = 2 + random.nextInt(6);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(random.nextInt(4) == 0 ? ": " : " ");
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            title.append(random.nextBoolean() ? word.toUpperCase() : word);
+        }
+        if (random.nextInt(3) == 0) {
+            title.append("（第").append(random.nextInt(10)).append("篇）!?");
+        }
+        return title.toString();
+    }
+
+    /**
+     * 数据库查询接口一页结果的JSON
+     */
+    public String queryResultJson(int pages, String nextCursor) {
+        JSONArray results = new JSONArray(pages);
+        for (int i = 0; i < pages; i++) {
+            results.add(pageJson(newId(), EDITED_TIME, title()));
+        }
+        return listJson(results, nextCursor);
+    }
+
+    /**
+     * 查询结果中的一个页面
+     */
+    public JSONObject pageJson(String id, String editedTime, String title) {
+        JSONObject page = new JSONObject();
+        page.put("object", "page");
+        page.put("id", id);
+        page.put("created_time", editedTime);
+        page.put("last_edited_time", editedTime);
+        page.put("archived", false);
+        page.put("url", "https://www.notion.so/" + id);
+        page.put("properties", properties(title));
+        return page;
+    }
+
+    /**
+     * 数据库查询接口一页结果的JSON
+     */
+    public static String queryResultJson(List<JSONObject> pages, String nextCursor) {
+        return listJson(new JSONArray(pages), nextCursor);
+    }
+
+    /**
+     * 子块接口一页结果的JSON，只包含给定块本身，不包含它们的子块
+     */
+    public static String blockListJson(List<Block> blocks, String nextCursor) {
+        JSONArray results = new JSONArray(blocks.size());
+        for (Block block : blocks) {
+            JSONObject json = BlockCodec.encode(block);
+            json.put("object", "block");
+            results.add(json);
+        }
+        return listJson(results, nextCursor);
+    }
+
+    /**
+     * 块树中块的总数
+     */
+    public static int count(List<Block> blocks) {
+        int count = blocks.size();
+        for (Block block : blocks) {
+            count += count(block.getChildren());
+        }
+        return count;
+    }
+
+    private static String listJson(JSONArray results, String nextCursor) {
+        JSONObject json = new JSONObject();
+        json.put("object", "list");
+        json.put("results", results);
+        json.put("next_cursor", nextCursor);
+        json.put("has_more", nextCursor != null);
+        return json.toJSONString(JSONWriter.Feature.WriteNulls);
+    }
+
+    private Block mixed(int depth, int[] remaining) {
+        switch (random.nextInt(10)) {
+            case 0:
+                return heading();
+            case 1:
+                return nestedList(Math.min(depth, 3), remaining);
+            case 2:
+                remaining[0]--;
+                return new Block.Code(header(false), List.of(text("public static void main(String[] args) {\n    run();\n}", 0, null, "default")), "java");
+            case 3:
+                if (remaining[0] > 10) {
+                    return table(4, 5, remaining);
+                }
+                break;
+            case 4:
+                remaining[0]--;
+                return new Block.Image(header(false), "external", "https://example.com/" + random.nextInt(1000) + ".png", List.of(text("图片说明", 0, null, "default")));
+            case 5:
+                remaining[0]--;
+                Block.Callout callout = new Block.Callout(header(depth > 0), richText(4), "💡");
+                if (depth > 0) {
+                    callout.setChildren(List.of(paragraph(2)));
+                    remaining[0]--;
+                }
+                return callout;
+            default:
+                break;
+        }
+        remaining[0]--;
+        return paragraph(4);
+    }
+
+    private Block nestedList(int depth, int[] remaining) {
+        BlockType[] types = {BlockType.BULLETED_LIST_ITEM, BlockType.NUMBERED_LIST_ITEM, BlockType.TOGGLE, BlockType.QUOTE};
+        BlockType type = types[random.nextInt(types.length)];
+        remaining[0]--;
+        boolean hasChildren = depth > 1 && remaining[0] > 0;
+        Block.Text block = new Block.Text(header(hasChildren), type, richText(3));
+        if (hasChildren) {
+            List<Block> children = new ArrayList<>();
+            int width = 1 + random.nextInt(3);
+            for (int i = 0; i < width && remaining[0] > 0; i++) {
+                children.add(nestedList(depth - 1, remaining));
+            }
+            block.setChildren(children);
+        }
+        return block;
+    }
+
+    private Block table(int columns, int rows, int[] remaining) {
+        Block.Table table = new Block.Table(header(true), columns, true, random.nextBoolean());
+        List<Block> children = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            List<List<RichText>> cells = new ArrayList<>(columns);
+            for (int c = 0; c < columns; c++) {
+                cells.add(richText(1 + random.nextInt(2)));
+            }
+            children.add(new Block.TableRow(header(false), cells));
+        }
+        table.setChildren(children);
+        remaining[0] -= rows + 1;
+        return table;
+    }
+
+    private Block heading() {
+        BlockType[] types = {BlockType.HEADING_1, BlockType.HEADING_2, BlockType.HEADING_3};
+        return new Block.Text(header(false), types[random.nextInt(types.length)], richText(1));
+    }
+
+    private Block paragraph(int runs) {
+        return new Block.Text(header(false), BlockType.PARAGRAPH, richText(runs));
+    }
+
+    private List<RichText> richText(int runs) {
+        List<RichText> result = new ArrayList<>(runs);
+        for (int i = 0; i < runs; i++) {
+            int style = random.nextInt(8);
+            int annotations = style < 4 ? 0 : 1 << random.nextInt(5);
+            String href = style == 1 ? "https://example.com/" + random.nextInt(100) : null;
+            String color = style == 2 ? COLORS[random.nextInt(COLORS.length)] : "default";
+            if (style == 3 && random.nextInt(4) == 0) {
+                result.add(new RichText(RichText.Kind.EQUATION, "e^{i\\pi} + 1 = 0", null, 0, RichText.DEFAULT_COLOR));
+            } else {
+                result.add(text(words(2 + random.nextInt(8)), annotations, href, color));
+            }
+        }
+        return result;
+    }
+
+    private String words(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static RichText text(String content, int annotations, String href, String color) {
+        return new RichText(RichText.Kind.TEXT, content, href, annotations, RichText.internColor(color));
+    }
+
+    private Block.Header header(boolean hasChildren) {
+        return new Block.Header(newId(), hasChildren, EDITED_TIME);
+    }
+
+    private String newId() {
+        if (idPrefix != null) {
+            return idPrefix + "-" + nextId++;
+        }
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+}
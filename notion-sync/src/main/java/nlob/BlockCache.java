@@ -0,0 +1,220 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
+import nlob.entity.block.Block;
+import nlob.utils.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 持久化的子块缓存，以父块和所在页面的 last_edited_time 为版本。
+ * 两个时间戳都未变化时直接返回本地保存的子块，不再请求Notion。
+ * 孙块的修改不会更新父块的时间戳，但会更新页面的时间戳，页面时间戳变化后该页面下的所有条目都失效。
+ * <p>
+ * 文件为JSONL格式：第一行是格式版本，其后每行一个父块及其直接子块，按最近使用顺序排列。
+ * 子块只保存转换需要的字段，结构与Notion接口一致，用同一个解码器读取。
+ * 总块数超过上限时淘汰最久未使用的条目。
+ */
+public class BlockCache {
+    /** 缓存格式变化时递增，旧格式的缓存文件会被整体丢弃 */
+    static final int FORMAT_VERSION = 4;
+    public static final int DEFAULT_MAX_BLOCKS = 100_000;
+
+    private final Path file;
+    private final int maxBlocks;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBlocks;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private record Entry(String lastEditedTime, String pageLastEditedTime, List<Block> children) {
+    }
+
+    public BlockCache(Path file, int maxBlocks) {
+        this.file = file;
+        this.maxBlocks = maxBlocks;
+    }
+
+    /**
+     * 从文件加载缓存，文件不存在、损坏或版本不符时返回空缓存
+     */
+    public static BlockCache load(Path file, int maxBlocks) {
+        BlockCache cache = new BlockCache(file, maxBlocks);
+        if (!Files.exists(file)) {
+            return cache;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || JSON.parseObject(header).getIntValue("version") != FORMAT_VERSION) {
+                Log.info("块缓存版本不符，已丢弃: " + file);
+                return cache;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                cache.readLine(line);
+            }
+            Log.info("加载块缓存: " + cache.entries.size() + " 个条目, " + cache.totalBlocks + " 个块");
+        } catch (Exception e) {
+            Log.warn("无法加载块缓存，将重新获取: " + e.getMessage());
+            return new BlockCache(file, maxBlocks);
+        }
+        return cache;
+    }
+
+    /**
+     * 获取缓存的子块；父块或页面的时间戳不一致时视为未命中
+     *
+     * @param pageLastEditedTime 父块所在页面的最后编辑时间
+     */
+    public List<Block> get(String blockId, String lastEditedTime, String pageLastEditedTime) {
+        if (lastEditedTime == null || pageLastEditedTime == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(blockId);
+        }
+        if (entry == null || !lastEditedTime.equals(entry.lastEditedTime())
+                || !pageLastEditedTime.equals(entry.pageLastEditedTime())) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copyOf(entry.children());
+    }
+
+    public void put(String blockId, String lastEditedTime, String pageLastEditedTime, List<Block> children) {
+        if (lastEditedTime == null || pageLastEditedTime == null) {
+            return;
+        }
+        Entry entry = new Entry(lastEditedTime, pageLastEditedTime, copyOf(children));
+        synchronized (this) {
+            putEntry(blockId, entry);
+        }
+    }
+
+    /**
+     * 原子地写回缓存文件
+     */
+    public synchronized void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write("{\"version\":" + FORMAT_VERSION + "}");
+            writer.newLine();
+            // 按最近使用顺序写出，加载后淘汰顺序保持不变
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                JSONObject item = new JSONObject();
+                item.put("id", e.getKey());
+                item.put("t", e.getValue().lastEditedTime());
+                item.put("p", e.getValue().pageLastEditedTime());
+                JSONArray children = new JSONArray(e.getValue().children().size());
+                for (Block block : e.getValue().children()) {
+                    children.add(BlockCodec.encode(block));
+                }
+                item.put("children", children);
+                writer.write(item.toJSONString());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Log.info("保存块缓存: " + entries.size() + " 个条目, " + totalBlocks + " 个块");
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 命中计数清零，常驻模式下每次同步单独统计
+     */
+    public void resetCounters() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    private void readLine(String line) {
+        String id = null;
+        String lastEditedTime = null;
+        String pageLastEditedTime = null;
+        List<Block> children = new ArrayList<>();
+        try (JSONReader reader = JSONReader.of(line)) {
+            reader.nextIfObjectStart();
+            while (!reader.nextIfObjectEnd()) {
+                switch (reader.readFieldName()) {
+                    case "id":
+                        id = reader.readString();
+                        break;
+                    case "t":
+                        lastEditedTime = reader.readString();
+                        break;
+                    case "p":
+                        pageLastEditedTime = reader.readString();
+                        break;
+                    case "children":
+                        reader.nextIfArrayStart();
+                        while (!reader.nextIfArrayEnd()) {
+                            children.add(BlockCodec.decode(reader));
+                        }
+                        reader.nextIfComma();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.nextIfComma();
+        }
+        putEntry(id, new Entry(lastEditedTime, pageLastEditedTime, children));
+    }
+
+    private void putEntry(String blockId, Entry entry) {
+        Entry old = entries.put(blockId, entry);
+        if (old != null) {
+            totalBlocks -= weight(old);
+        }
+        totalBlocks += weight(entry);
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBlocks > maxBlocks && it.hasNext()) {
+            totalBlocks -= weight(it.next());
+            it.remove();
+        }
+    }
+
+    private static int weight(Entry entry) {
+        return entry.children().size() + 1;
+    }
+
+    /**
+     * 复制块对象，获取过程中会修改层级信息，缓存中的对象不能共享出去
+     */
+    private static List<Block> copyOf(List<Block> blocks) {
+        List<Block> copy = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            copy.add(block.copy());
+        }
+        return copy;
+    }
+}
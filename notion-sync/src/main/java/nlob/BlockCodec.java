@@ -0,0 +1,411 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
+import nlob.entity.block.Block;
+import nlob.entity.block.BlockType;
+import nlob.entity.block.RichText;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 类型化块与Notion块JSON之间的转换。
+ * 解码直接读取JSONReader，编码输出与接口结构一致的精简JSON（用于块缓存）。
+ * <p>
+ * 注意：手动读完一个对象或数组后要调用 nextIfComma()，JSONReader不会自动跳过其后的逗号
+ */
+public final class BlockCodec {
+
+    private BlockCodec() {
+    }
+
+    /**
+     * 块内容中可能出现的字段，按类型取用
+     */
+    private static final class Content {
+        List<RichText> richText = Collections.emptyList();
+        boolean checked;
+        String language;
+        String icon;
+        String title;
+        String source;
+        String url;
+        List<RichText> caption = Collections.emptyList();
+        int tableWidth;
+        boolean hasColumnHeader;
+        boolean hasRowHeader;
+        List<List<RichText>> cells = Collections.emptyList();
+        String expression;
+    }
+
+    /**
+     * 解码单个块，只保留转换需要的字段
+     */
+    public static Block decode(JSONReader reader) {
+        String id = null;
+        String apiType = null;
+        boolean hasChildren = false;
+        String lastEditedTime = null;
+        Content content = new Content();
+
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            String name = reader.readFieldName();
+            switch (name) {
+                case "id":
+                    id = reader.readString();
+                    break;
+                case "type":
+                    apiType = reader.readString();
+                    break;
+                case "has_children":
+                    hasChildren = reader.readBoolValue();
+                    break;
+                case "last_edited_time":
+                    lastEditedTime = reader.readString();
+                    break;
+                case "object":
+                case "parent":
+                case "created_time":
+                case "created_by":
+                case "last_edited_by":
+                case "archived":
+                case "in_trash":
+                    reader.skipValue();
+                    break;
+                default:
+                    // 与type同名的对象是块内容；type在内容之后出现时也按内容读取
+                    if (reader.isObject() && (apiType == null || name.equals(apiType))) {
+                        readContent(reader, content);
+                    } else {
+                        reader.skipValue();
+                    }
+            }
+        }
+        reader.nextIfComma();
+        return create(new Block.Header(id, hasChildren, lastEditedTime), apiType, content);
+    }
+
+    private static Block create(Block.Header header, String apiType, Content c) {
+        BlockType type = BlockType.of(apiType);
+        switch (type) {
+            case PARAGRAPH:
+            case HEADING_1:
+            case HEADING_2:
+            case HEADING_3:
+            case BULLETED_LIST_ITEM:
+            case NUMBERED_LIST_ITEM:
+            case TOGGLE:
+            case QUOTE:
+                return new Block.Text(header, type, c.richText);
+            case TO_DO:
+                return new Block.ToDo(header, c.richText, c.checked);
+            case CODE:
+                return new Block.Code(header, c.richText, c.language);
+            case CALLOUT:
+                return new Block.Callout(header, c.richText, c.icon);
+            case CHILD_PAGE:
+                return new Block.ChildPage(header, c.title);
+            case IMAGE:
+                return new Block.Image(header, c.source, c.url, c.caption);
+            case TABLE:
+                return new Block.Table(header, c.tableWidth, c.hasColumnHeader, c.hasRowHeader);
+            case TABLE_ROW:
+                return new Block.TableRow(header, c.cells);
+            case COLUMN_LIST:
+            case COLUMN:
+            case DIVIDER:
+                return new Block.Layout(header, type);
+            case EQUATION:
+                return new Block.Equation(header, c.expression);
+            case BOOKMARK:
+                return new Block.Bookmark(header, c.url, c.caption);
+            default:
+                return new Block.Unsupported(header, apiType, c.richText);
+        }
+    }
+
+    private static void readContent(JSONReader reader, Content c) {
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            String name = reader.readFieldName();
+            switch (name) {
+                case "rich_text":
+                    c.richText = readRichText(reader);
+                    break;
+                case "checked":
+                    c.checked = reader.readBoolValue();
+                    break;
+                case "language":
+                    c.language = reader.readString();
+                    break;
+                case "icon":
+                    c.icon = readIcon(reader);
+                    break;
+                case "title":
+                    c.title = reader.readString();
+                    break;
+                case "type":
+                    c.source = reader.readString();
+                    break;
+                case "file":
+                case "external":
+                    c.url = readUrl(reader);
+                    break;
+                case "url":
+                    c.url = reader.nextIfNull() ? null : reader.readString();
+                    break;
+                case "caption":
+                    c.caption = readRichText(reader);
+                    break;
+                case "table_width":
+                    c.tableWidth = reader.readInt32Value();
+                    break;
+                case "has_column_header":
+                    c.hasColumnHeader = reader.readBoolValue();
+                    break;
+                case "has_row_header":
+                    c.hasRowHeader = reader.readBoolValue();
+                    break;
+                case "cells":
+                    c.cells = readCells(reader);
+                    break;
+                case "expression":
+                    c.expression = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.nextIfComma();
+    }
+
+    /**
+     * 解码富文本数组
+     */
+    public static List<RichText> readRichText(JSONReader reader) {
+        if (reader.nextIfNull()) {
+            return Collections.emptyList();
+        }
+        List<RichText> list = new ArrayList<>();
+        reader.nextIfArrayStart();
+        while (!reader.nextIfArrayEnd()) {
+            list.add(readRichTextItem(reader));
+        }
+        reader.nextIfComma();
+        return list;
+    }
+
+    private static RichText readRichTextItem(JSONReader reader) {
+        RichText.Kind kind = RichText.Kind.TEXT;
+        String plainText = null;
+        String href = null;
+        int annotations = 0;
+        String color = RichText.DEFAULT_COLOR;
+
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            String name = reader.readFieldName();
+            switch (name) {
+                case "type":
+                    kind = RichText.Kind.of(reader.readString());
+                    break;
+                case "plain_text":
+                    plainText = reader.readString();
+                    break;
+                case "href":
+                    href = reader.nextIfNull() ? null : reader.readString();
+                    break;
+                case "annotations":
+                    reader.nextIfObjectStart();
+                    while (!reader.nextIfObjectEnd()) {
+                        String flag = reader.readFieldName();
+                        switch (flag) {
+                            case "bold":
+                                annotations |= reader.readBoolValue() ? RichText.BOLD : 0;
+                                break;
+                            case "italic":
+                                annotations |= reader.readBoolValue() ? RichText.ITALIC : 0;
+                                break;
+                            case "strikethrough":
+                                annotations |= reader.readBoolValue() ? RichText.STRIKETHROUGH : 0;
+                                break;
+                            case "underline":
+                                annotations |= reader.readBoolValue() ? RichText.UNDERLINE : 0;
+                                break;
+                            case "code":
+                                annotations |= reader.readBoolValue() ? RichText.CODE : 0;
+                                break;
+                            case "color":
+                                color = RichText.internColor(reader.readString());
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.nextIfComma();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.nextIfComma();
+        return new RichText(kind, plainText, href, annotations, color);
+    }
+
+    private static List<List<RichText>> readCells(JSONReader reader) {
+        List<List<RichText>> cells = new ArrayList<>();
+        reader.nextIfArrayStart();
+        while (!reader.nextIfArrayEnd()) {
+            cells.add(readRichText(reader));
+        }
+        reader.nextIfComma();
+        return cells;
+    }
+
+    private static String readIcon(JSONReader reader) {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+        String emoji = null;
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            if ("emoji".equals(reader.readFieldName())) {
+                emoji = reader.readString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.nextIfComma();
+        return emoji;
+    }
+
+    private static String readUrl(JSONReader reader) {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+        String url = null;
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            if ("url".equals(reader.readFieldName())) {
+                url = reader.readString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.nextIfComma();
+        return url;
+    }
+
+    /**
+     * 编码为与接口结构一致的精简JSON，可以再用 decode 读回
+     */
+    public static JSONObject encode(Block block) {
+        String apiType = block.getType().apiName();
+        if (block instanceof Block.Unsupported unsupported && unsupported.getApiType() != null) {
+            apiType = unsupported.getApiType();
+        }
+
+        JSONObject content = new JSONObject();
+        switch (block.getType()) {
+            case PARAGRAPH:
+            case HEADING_1:
+            case HEADING_2:
+            case HEADING_3:
+            case BULLETED_LIST_ITEM:
+            case NUMBERED_LIST_ITEM:
+            case TOGGLE:
+            case QUOTE:
+                content.put("rich_text", encodeRichText(((Block.Text) block).getRichText()));
+                break;
+            case TO_DO:
+                Block.ToDo toDo = (Block.ToDo) block;
+                content.put("rich_text", encodeRichText(toDo.getRichText()));
+                content.put("checked", toDo.isChecked());
+                break;
+            case CODE:
+                Block.Code code = (Block.Code) block;
+                content.put("rich_text", encodeRichText(code.getRichText()));
+                content.put("language", code.getLanguage());
+                break;
+            case CALLOUT:
+                Block.Callout callout = (Block.Callout) block;
+                content.put("rich_text", encodeRichText(callout.getRichText()));
+                if (callout.getIcon() != null) {
+                    content.put("icon", JSONObject.of("type", "emoji", "emoji", callout.getIcon()));
+                }
+                break;
+            case CHILD_PAGE:
+                content.put("title", ((Block.ChildPage) block).getTitle());
+                break;
+            case IMAGE:
+                Block.Image image = (Block.Image) block;
+                String source = image.getSource() != null ? image.getSource() : "external";
+                content.put("type", source);
+                content.put(source, JSONObject.of("url", image.getUrl()));
+                content.put("caption", encodeRichText(image.getCaption()));
+                break;
+            case TABLE:
+                Block.Table table = (Block.Table) block;
+                content.put("table_width", table.getTableWidth());
+                content.put("has_column_header", table.isHasColumnHeader());
+                content.put("has_row_header", table.isHasRowHeader());
+                break;
+            case TABLE_ROW:
+                JSONArray cells = new JSONArray();
+                for (List<RichText> cell : ((Block.TableRow) block).getCells()) {
+                    cells.add(encodeRichText(cell));
+                }
+                content.put("cells", cells);
+                break;
+            case EQUATION:
+                content.put("expression", ((Block.Equation) block).getExpression());
+                break;
+            case BOOKMARK:
+                Block.Bookmark bookmark = (Block.Bookmark) block;
+                content.put("url", bookmark.getUrl());
+                content.put("caption", encodeRichText(bookmark.getCaption()));
+                break;
+            case UNSUPPORTED:
+                content.put("rich_text", encodeRichText(((Block.Unsupported) block).getRichText()));
+                break;
+            default:
+                break;
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("id", block.getId());
+        json.put("last_edited_time", block.getLastEditedTime());
+        json.put("has_children", block.isHasChildren());
+        json.put("type", apiType);
+        json.put(apiType, content);
+        return json;
+    }
+
+    private static JSONArray encodeRichText(List<RichText> richText) {
+        JSONArray array = new JSONArray(richText.size());
+        for (RichText text : richText) {
+            JSONObject item = new JSONObject();
+            item.put("type", text.kind().apiName());
+            item.put("plain_text", text.plainText());
+            item.put("href", text.href());
+
+            // 只写出非默认的样式，缓存文件更紧凑
+            if (text.annotations() != 0 || !RichText.DEFAULT_COLOR.equals(text.color())) {
+                JSONObject annotations = new JSONObject();
+                if (text.has(RichText.BOLD)) annotations.put("bold", true);
+                if (text.has(RichText.ITALIC)) annotations.put("italic", true);
+                if (text.has(RichText.STRIKETHROUGH)) annotations.put("strikethrough", true);
+                if (text.has(RichText.UNDERLINE)) annotations.put("underline", true);
+                if (text.has(RichText.CODE)) annotations.put("code", true);
+                if (!RichText.DEFAULT_COLOR.equals(text.color())) annotations.put("color", text.color());
+                item.put("annotations", annotations);
+            }
+            array.add(item);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,155 @@
+package nlob;
+
+import nlob.entity.block.Block;
+import nlob.utils.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并发获取块树：同级块的子块请求并行发出，子块按文档顺序挂到各自的父块上
+ */
+public class BlockTreeFetcher implements AutoCloseable {
+    private static final int MAX_DEPTH = 10;
+
+    private final ChildrenLoader loader;
+    private final Executor executor;
+    /** 自己创建的线程池，关闭时一并关闭；使用外部线程池时为null */
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * 获取某个块的直接子块
+     */
+    @FunctionalInterface
+    public interface ChildrenLoader {
+        /**
+         * @param lastEditedTime     父块的最后编辑时间，可用于缓存校验，未知时为null
+         * @param pageLastEditedTime 父块所在页面的最后编辑时间，孙块的修改只会反映在这个时间戳上，未知时为null
+         */
+        List<Block> load(String blockId, String lastEditedTime, String pageLastEditedTime) throws Exception;
+    }
+
+    /**
+     * @param concurrency 同时在途的子块请求上限
+     */
+    public BlockTreeFetcher(ChildrenLoader loader, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("并发数必须大于0: " + concurrency);
+        }
+        this.loader = loader;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.ownedExecutor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "block-fetcher-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor = ownedExecutor;
+    }
+
+    /**
+     * 在外部线程池中获取子块，并发数由线程池决定，关闭时不关闭线程池
+     */
+    public BlockTreeFetcher(ChildrenLoader loader, Executor executor) {
+        this.loader = loader;
+        this.executor = executor;
+        this.ownedExecutor = null;
+    }
+
+    /**
+     * 获取根块的直接子块，每个块的子块（包括所有嵌套子块）已填充
+     */
+    public List<Block> fetch(String rootId, String rootLastEditedTime) throws Exception {
+        try {
+            return fetchSubtree(rootId, rootLastEditedTime, rootLastEditedTime, 0).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 获取子树。请求在线程池中执行，结果通过future组合，线程池中的线程不会阻塞等待其他任务
+     */
+    private CompletableFuture<List<Block>> fetchSubtree(String blockId, String lastEditedTime,
+                                                        String pageLastEditedTime, int depth) {
+        if (depth > MAX_DEPTH) { // 防止无限递归
+            Log.warn("警告：达到最大递归深度: " + blockId);
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        SyncEvents.BlockTreeFetch event = new SyncEvents.BlockTreeFetch();
+        event.begin();
+        return CompletableFuture.supplyAsync(() -> loadChildren(blockId, lastEditedTime, pageLastEditedTime), executor)
+                .thenCompose(children -> {
+                    List<CompletableFuture<List<Block>>> subtrees = new ArrayList<>(children.size());
+                    for (int i = 0; i < children.size(); i++) {
+                        Block block = children.get(i);
+
+                        // 检查是否需要获取子块，同级的子块请求并行发出
+                        if (shouldFetchChildren(block)) {
+                            String childBlockId = block.getId();
+                            Log.debug("深度 %d - 获取 %s 块的子块: %s", depth, block.getType().apiName(), childBlockId);
+                            subtrees.add(fetchSubtree(childBlockId, block.getLastEditedTime(), pageLastEditedTime, depth + 1));
+                        } else {
+                            subtrees.add(null);
+                        }
+                    }
+
+                    return CompletableFuture.allOf(subtrees.stream()
+                                    .filter(f -> f != null)
+                                    .toArray(CompletableFuture[]::new))
+                            .thenApply(v -> {
+                                // 子树挂到各自的父块上，顺序与文档一致
+                                for (int i = 0; i < children.size(); i++) {
+                                    CompletableFuture<List<Block>> subtree = subtrees.get(i);
+                                    if (subtree != null) {
+                                        children.get(i).setChildren(subtree.join());
+                                    }
+                                }
+                                if (event.shouldCommit()) {
+                                    event.blockId = blockId;
+                                    event.depth = depth;
+                                    event.children = children.size();
+                                    event.commit();
+                                }
+                                return children;
+                            });
+                });
+    }
+
+    private List<Block> loadChildren(String blockId, String lastEditedTime, String pageLastEditedTime) {
+        try {
+            List<Block> children = loader.load(blockId, lastEditedTime, pageLastEditedTime);
+            return children != null ? children : Collections.emptyList();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * 判断是否需要获取子块
+     */
+    private static boolean shouldFetchChildren(Block block) {
+        // 这些类型的块通常有子内容
+        return block.isHasChildren() && block.getType().isNestable();
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+}
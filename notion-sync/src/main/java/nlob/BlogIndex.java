@@ -0,0 +1,182 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.JSONWriter;
+import nlob.entity.IndexEntry;
+import nlob.utils.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 文章索引，按页面id存取，同时维护按日期倒序排列的有序集合。
+ * 更新和删除都不需要扫描或重新排序整个索引。
+ * <p>
+ * 条目加入索引后不能再修改id和日期，需要修改时用新条目调用 {@link #put}
+ */
+public class BlogIndex {
+    /** 最新的在前；同一天的按id排列，保证输出稳定 */
+    private static final Comparator<IndexEntry> ORDER = Comparator
+            .comparing(IndexEntry::getDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(IndexEntry::getId);
+
+    /** 序列化时每写出这么多条目就把缓冲区刷到Writer */
+    private static final int FLUSH_INTERVAL = 64;
+
+    private final Map<String, IndexEntry> byId = new HashMap<>();
+    private final TreeSet<IndexEntry> sorted = new TreeSet<>(ORDER);
+
+    /**
+     * 加载现有索引文件，文件不存在或无法解析时返回空索引
+     */
+    public static BlogIndex load(Path file) {
+        BlogIndex index = new BlogIndex();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file);
+                 JSONReader reader = JSONReader.of(in, StandardCharsets.UTF_8)) {
+                if (reader.nextIfArrayStart()) {
+                    while (!reader.nextIfArrayEnd()) {
+                        IndexEntry entry = readEntry(reader);
+                        if (entry.getId() != null) {
+                            index.put(entry);
+                        }
+                    }
+                }
+                Log.info("成功加载现有索引文件");
+                return index;
+            } catch (Exception e) {
+                Log.warn("无法加载现有索引文件，将创建新索引: " + e.getMessage());
+                index = new BlogIndex();
+            }
+        }
+        Log.info("创建新的索引文件");
+        return index;
+    }
+
+    public IndexEntry get(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * 新增或替换同一id的条目
+     */
+    public void put(IndexEntry entry) {
+        IndexEntry old = byId.put(entry.getId(), entry);
+        if (old != null) {
+            sorted.remove(old);
+        }
+        sorted.add(entry);
+    }
+
+    public IndexEntry remove(String id) {
+        IndexEntry old = byId.remove(id);
+        if (old != null) {
+            sorted.remove(old);
+        }
+        return old;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * 按日期倒序排列的全部条目（只读视图）
+     */
+    public Collection<IndexEntry> entries() {
+        return Collections.unmodifiableCollection(sorted);
+    }
+
+    /**
+     * 以JSON数组格式流式写出索引，不先构造中间对象
+     */
+    public void write(Writer out) throws IOException {
+        writeEntries(sorted, out);
+    }
+
+    /**
+     * 以JSON数组格式流式写出一组条目，分片输出时也使用
+     */
+    static void writeEntries(Iterable<IndexEntry> entries, Writer out) throws IOException {
+        try (JSONWriter writer = JSONWriter.of(JSONWriter.Feature.PrettyFormat)) {
+            writer.startArray();
+            int count = 0;
+            for (IndexEntry entry : entries) {
+                if (count > 0) {
+                    writer.writeComma();
+                }
+                writeEntry(writer, entry);
+                if (++count % FLUSH_INTERVAL == 0) {
+                    writer.flushTo(out);
+                }
+            }
+            writer.endArray();
+            writer.flushTo(out);
+        }
+    }
+
+    private static void writeEntry(JSONWriter writer, IndexEntry entry) {
+        writer.startObject();
+        writeField(writer, "id", entry.getId());
+        writeField(writer, "filename", entry.getFilename());
+        writeField(writer, "title", entry.getTitle());
+        writeField(writer, "date", entry.getDate());
+        writeField(writer, "update", entry.getUpdate());
+        writeField(writer, "excerpt", entry.getExcerpt());
+        if (entry.getTags() != null) {
+            writeField(writer, "tags", entry.getTags());
+        }
+        writer.endObject();
+    }
+
+    private static void writeField(JSONWriter writer, String name, String value) {
+        writer.writeName(name);
+        writer.writeColon();
+        writer.writeString(value);
+    }
+
+    private static IndexEntry readEntry(JSONReader reader) {
+        IndexEntry entry = new IndexEntry();
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            String name = reader.readFieldName();
+            switch (name) {
+                case "id":
+                    entry.setId(reader.readString());
+                    break;
+                case "filename":
+                    entry.setFilename(reader.readString());
+                    break;
+                case "title":
+                    entry.setTitle(reader.readString());
+                    break;
+                case "date":
+                    entry.setDate(reader.readString());
+                    break;
+                case "update":
+                    entry.setUpdate(reader.readString());
+                    break;
+                case "excerpt":
+                    entry.setExcerpt(reader.readString());
+                    break;
+                case "tags":
+                    entry.setTags(reader.readString());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.nextIfComma();
+        return entry;
+    }
+}
@@ -0,0 +1,94 @@
+package nlob;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Notion分页接口（has_more/next_cursor）的迭代器。
+ * 处理当前页的同时预取下一页，内存中最多只保留两页结果。
+ */
+public class CursorPaginator<T> implements Iterator<T> {
+    private final PageLoader<T> loader;
+    private final Executor prefetchExecutor;
+
+    private Iterator<T> current;
+    private CompletableFuture<CursorPage<T>> next;
+
+    /**
+     * 一页结果；nextCursor为null表示没有更多数据
+     */
+    public record CursorPage<T>(List<T> results, String nextCursor) {
+    }
+
+    /**
+     * 按游标加载一页，cursor为null表示第一页
+     */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        CursorPage<T> load(String cursor) throws Exception;
+    }
+
+    public CursorPaginator(PageLoader<T> loader, Executor prefetchExecutor) {
+        this.loader = loader;
+        this.prefetchExecutor = prefetchExecutor;
+        this.next = load(null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || !current.hasNext()) {
+            if (next == null) {
+                return false;
+            }
+            CursorPage<T> page = await(next);
+            current = page.results().iterator();
+            // 立即预取下一页，与当前页的处理重叠
+            next = page.nextCursor() != null ? load(page.nextCursor()) : null;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false);
+    }
+
+    private CompletableFuture<CursorPage<T>> load(String cursor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return loader.load(cursor);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, prefetchExecutor);
+    }
+
+    private static <T> CursorPage<T> await(CompletableFuture<CursorPage<T>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
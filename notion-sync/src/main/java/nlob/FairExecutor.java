@@ -0,0 +1,108 @@
+package nlob;
+
+import nlob.utils.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 多个数据源共享的固定大小线程池。每个数据源有自己的任务队列，
+ * 工作线程轮流从有任务的队列中各取一个任务，一个数据源提交大量任务时其他数据源不会被饿死
+ */
+public class FairExecutor implements AutoCloseable {
+    private final Object lock = new Object();
+    /** 有待执行任务的队列，按轮转顺序排列 */
+    private final ArrayDeque<SourceQueue> ready = new ArrayDeque<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private boolean shutdown;
+
+    /**
+     * @param threadName 工作线程名前缀
+     * @param threads    工作线程数
+     */
+    public FairExecutor(String threadName, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("线程数必须大于0: " + threads);
+        }
+        for (int i = 1; i <= threads; i++) {
+            Thread thread = new Thread(this::work, threadName + "-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * 为一个数据源创建任务队列，提交到同一队列的任务按提交顺序执行
+     */
+    public Executor newQueue() {
+        return new SourceQueue();
+    }
+
+    private void work() {
+        while (true) {
+            Runnable task;
+            synchronized (lock) {
+                while (ready.isEmpty() && !shutdown) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        if (shutdown) {
+                            return;
+                        }
+                    }
+                }
+                if (shutdown) {
+                    return;
+                }
+                SourceQueue queue = ready.poll();
+                task = queue.tasks.poll();
+                if (!queue.tasks.isEmpty()) {
+                    ready.add(queue);
+                }
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                Log.error("任务执行失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 停止工作线程，丢弃未执行的任务
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            shutdown = true;
+            ready.clear();
+            lock.notifyAll();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private final class SourceQueue implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (lock) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("线程池已关闭");
+                }
+                tasks.add(task);
+                // 队列由空变为非空时加入轮转
+                if (tasks.size() == 1) {
+                    ready.add(this);
+                    lock.notify();
+                }
+            }
+        }
+    }
+}
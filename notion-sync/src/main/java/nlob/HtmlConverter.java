@@ -0,0 +1,486 @@
+package nlob;
+
+import nlob.entity.block.Block;
+import nlob.entity.block.BlockType;
+import nlob.entity.block.ImageInfo;
+import nlob.entity.block.RichText;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * 将块树直接转换为HTML片段，前端只需插入页面，不再在浏览器里解析Markdown。
+ * 所有文本和属性都经过转义，链接只保留 http(s)、mailto 和相对地址，颜色只接受Notion颜色名，
+ * 输出中不会出现来自内容的标签或脚本
+ */
+public class HtmlConverter {
+    private static final Pattern SAFE_COLOR = Pattern.compile("[a-z]+(_background)?");
+    private static final String BACKGROUND_SUFFIX = "_background";
+
+    private final Appendable out;
+
+    public HtmlConverter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * 转换为字符串，用于内容较短或需要整体处理的场合
+     */
+    public static String toHtml(List<Block> blocks) {
+        StringBuilder html = new StringBuilder();
+        try {
+            new HtmlConverter(html).write(blocks);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return html.toString();
+    }
+
+    public void write(List<Block> blocks) throws IOException {
+        convertBlocks(blocks);
+    }
+
+    /**
+     * 转换同级块，相邻的同类列表项合并到一个列表里
+     */
+    private void convertBlocks(List<Block> blocks) throws IOException {
+        BlockType openList = null;
+        for (Block block : blocks) {
+            BlockType type = block.getType();
+            BlockType listType = isListItem(type) ? type : null;
+            if (openList != listType) {
+                if (openList != null) {
+                    closeList(openList);
+                }
+                if (listType != null) {
+                    openList(listType);
+                }
+                openList = listType;
+            }
+            convertBlock(block);
+        }
+        if (openList != null) {
+            closeList(openList);
+        }
+    }
+
+    private static boolean isListItem(BlockType type) {
+        return type == BlockType.BULLETED_LIST_ITEM || type == BlockType.NUMBERED_LIST_ITEM || type == BlockType.TO_DO;
+    }
+
+    private void openList(BlockType type) throws IOException {
+        switch (type) {
+            case NUMBERED_LIST_ITEM:
+                out.append("<ol>\n");
+                break;
+            case TO_DO:
+                out.append("<ul class=\"todo-list\">\n");
+                break;
+            default:
+                out.append("<ul>\n");
+        }
+    }
+
+    private void closeList(BlockType type) throws IOException {
+        out.append(type == BlockType.NUMBERED_LIST_ITEM ? "</ol>\n" : "</ul>\n");
+    }
+
+    /**
+     * 转换块及其子块
+     */
+    private void convertBlock(Block block) throws IOException {
+        switch (block.getType()) {
+            case PARAGRAPH:
+                out.append("<p>");
+                appendRichText(((Block.Text) block).getRichText());
+                out.append("</p>\n");
+                convertBlocks(block.getChildren());
+                break;
+
+            case HEADING_1:
+                heading("h1", (Block.Text) block);
+                break;
+
+            case HEADING_2:
+                heading("h2", (Block.Text) block);
+                break;
+
+            case HEADING_3:
+                heading("h3", (Block.Text) block);
+                break;
+
+            case BULLETED_LIST_ITEM:
+            case NUMBERED_LIST_ITEM:
+                out.append("<li>");
+                appendRichText(((Block.Text) block).getRichText());
+                convertBlocks(block.getChildren());
+                out.append("</li>\n");
+                break;
+
+            case TO_DO:
+                Block.ToDo toDo = (Block.ToDo) block;
+                out.append(toDo.isChecked()
+                        ? "<li><input type=\"checkbox\" disabled checked> "
+                        : "<li><input type=\"checkbox\" disabled> ");
+                appendRichText(toDo.getRichText());
+                convertBlocks(block.getChildren());
+                out.append("</li>\n");
+                break;
+
+            case TOGGLE:
+                out.append("<details>\n<summary>");
+                appendRichText(((Block.Text) block).getRichText());
+                out.append("</summary>\n");
+                convertBlocks(block.getChildren());
+                out.append("</details>\n");
+                break;
+
+            case QUOTE:
+                out.append("<blockquote>\n<p>");
+                appendRichText(((Block.Text) block).getRichText());
+                out.append("</p>\n");
+                convertBlocks(block.getChildren());
+                out.append("</blockquote>\n");
+                break;
+
+            case CALLOUT:
+                Block.Callout callout = (Block.Callout) block;
+                out.append("<div class=\"callout\">\n<span class=\"callout-icon\">");
+                escape(callout.getIcon() != null ? callout.getIcon() : "💡");
+                out.append("</span>\n<div class=\"callout-content\">\n<p>");
+                appendRichText(callout.getRichText());
+                out.append("</p>\n");
+                convertBlocks(block.getChildren());
+                out.append("</div>\n</div>\n");
+                break;
+
+            case CODE:
+                Block.Code code = (Block.Code) block;
+                out.append("<pre><code");
+                if (code.getLanguage() != null && !code.getLanguage().isEmpty()) {
+                    out.append(" class=\"hljs language-");
+                    escape(code.getLanguage());
+                    out.append('"');
+                }
+                out.append('>');
+                for (RichText text : code.getRichText()) {
+                    if (text.plainText() != null) {
+                        escape(text.plainText());
+                    }
+                }
+                out.append("</code></pre>\n");
+                break;
+
+            case CHILD_PAGE:
+                out.append("<p><strong>子页面: ");
+                escape(((Block.ChildPage) block).getTitle());
+                out.append("</strong></p>\n");
+                convertBlocks(block.getChildren());
+                break;
+
+            case IMAGE:
+                convertImage((Block.Image) block);
+                break;
+
+            case DIVIDER:
+                out.append("<hr>\n");
+                break;
+
+            case EQUATION:
+                out.append("<div class=\"equation\">$$");
+                escape(((Block.Equation) block).getExpression());
+                out.append("$$</div>\n");
+                break;
+
+            case BOOKMARK:
+                String url = ((Block.Bookmark) block).getUrl();
+                if (url != null) {
+                    out.append("<p><a href=\"");
+                    escape(safeUrl(url));
+                    out.append("\">");
+                    escape(url);
+                    out.append("</a></p>\n");
+                }
+                break;
+
+            case TABLE:
+                convertTable((Block.Table) block);
+                break;
+
+            case COLUMN_LIST:
+                out.append("<div class=\"columns\">\n");
+                convertBlocks(block.getChildren());
+                out.append("</div>\n");
+                break;
+
+            case COLUMN:
+                out.append("<div class=\"column\">\n");
+                convertBlocks(block.getChildren());
+                out.append("</div>\n");
+                break;
+
+            case UNSUPPORTED:
+                Block.Unsupported unsupported = (Block.Unsupported) block;
+                if (!unsupported.getRichText().isEmpty()) {
+                    out.append("<p>");
+                    appendRichText(unsupported.getRichText());
+                    out.append("</p>\n");
+                }
+                convertBlocks(block.getChildren());
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private void heading(String tag, Block.Text block) throws IOException {
+        out.append('<').append(tag).append('>');
+        appendRichText(block.getRichText());
+        out.append("</").append(tag).append(">\n");
+        convertBlocks(block.getChildren());
+    }
+
+    private void convertImage(Block.Image image) throws IOException {
+        if (image.getDisplayUrl() == null) {
+            return;
+        }
+        out.append("<figure>\n<img src=\"");
+        escape(safeUrl(image.getDisplayUrl()));
+        out.append('"');
+        ImageInfo info = image.getInfo();
+        if (info != null && image.getLocalPath() != null) {
+            if (!info.variants().isEmpty()) {
+                out.append(" srcset=\"");
+                escape(info.srcset(image.getLocalPath()));
+                out.append("\" sizes=\"").append(ImageInfo.SIZES).append('"');
+            }
+            out.append(" width=\"").append(Integer.toString(info.width()))
+                    .append("\" height=\"").append(Integer.toString(info.height())).append('"');
+        }
+        out.append(" alt=\"");
+        for (RichText text : image.getCaption()) {
+            if (text.plainText() != null) {
+                escape(text.plainText());
+            }
+        }
+        out.append("\" loading=\"lazy\">\n");
+        if (!image.getCaption().isEmpty()) {
+            out.append("<figcaption>");
+            appendRichText(image.getCaption());
+            out.append("</figcaption>\n");
+        }
+        out.append("</figure>\n");
+    }
+
+    /**
+     * 转换表格，按表格设置输出列标题和行标题
+     */
+    private void convertTable(Block.Table table) throws IOException {
+        List<Block.TableRow> rows = new ArrayList<>();
+        for (Block child : table.getChildren()) {
+            if (child instanceof Block.TableRow row) {
+                rows.add(row);
+            }
+        }
+
+        out.append("<table>\n");
+        int bodyStart = 0;
+        if (table.isHasColumnHeader() && !rows.isEmpty()) {
+            out.append("<thead>\n");
+            tableRow(rows.get(0), true, table.isHasRowHeader());
+            out.append("</thead>\n");
+            bodyStart = 1;
+        }
+        if (bodyStart < rows.size()) {
+            out.append("<tbody>\n");
+            for (int i = bodyStart; i < rows.size(); i++) {
+                tableRow(rows.get(i), false, table.isHasRowHeader());
+            }
+            out.append("</tbody>\n");
+        }
+        out.append("</table>\n");
+    }
+
+    private void tableRow(Block.TableRow row, boolean headerRow, boolean rowHeader) throws IOException {
+        out.append("<tr>");
+        List<List<RichText>> cells = row.getCells();
+        for (int i = 0; i < cells.size(); i++) {
+            String tag = headerRow || i == 0 && rowHeader ? "th" : "td";
+            out.append('<').append(tag).append('>');
+            appendRichText(cells.get(i));
+            out.append("</").append(tag).append('>');
+        }
+        out.append("</tr>\n");
+    }
+
+    /**
+     * 转换富文本，样式、链接和颜色都相同的相邻片段合并到同一组标签里
+     */
+    private void appendRichText(List<RichText> richText) throws IOException {
+        if (richText == null) {
+            return;
+        }
+
+        int size = richText.size();
+        int i = 0;
+        while (i < size) {
+            RichText first = richText.get(i);
+            if (first.kind() == RichText.Kind.EQUATION) {
+                if (first.plainText() != null) {
+                    out.append("<span class=\"equation\">$");
+                    escape(first.plainText());
+                    out.append("$</span>");
+                }
+                i++;
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < size && sameStyle(first, richText.get(end))) {
+                end++;
+            }
+            appendRun(richText, i, end, first);
+            i = end;
+        }
+    }
+
+    private void appendRun(List<RichText> richText, int from, int to, RichText style) throws IOException {
+        String href = style.href();
+        boolean link = href != null && !href.isEmpty();
+        String color = style.color();
+        boolean colored = color != null && !RichText.DEFAULT_COLOR.equals(color) && SAFE_COLOR.matcher(color).matches();
+        boolean code = style.has(RichText.CODE);
+        boolean bold = style.has(RichText.BOLD);
+        boolean italic = style.has(RichText.ITALIC);
+        boolean strikethrough = style.has(RichText.STRIKETHROUGH);
+        boolean underline = style.has(RichText.UNDERLINE);
+
+        if (link) {
+            out.append("<a href=\"");
+            escape(safeUrl(href));
+            out.append("\">");
+        }
+        if (colored) {
+            if (color.endsWith(BACKGROUND_SUFFIX)) {
+                out.append("<span style=\"background-color: ")
+                        .append(color, 0, color.length() - BACKGROUND_SUFFIX.length())
+                        .append("\">");
+            } else {
+                out.append("<span style=\"color: ").append(color).append("\">");
+            }
+        }
+        if (underline) out.append("<u>");
+        if (strikethrough) out.append("<s>");
+        if (italic) out.append("<em>");
+        if (bold) out.append("<strong>");
+        if (code) out.append("<code>");
+
+        for (int i = from; i < to; i++) {
+            String plainText = richText.get(i).plainText();
+            if (plainText != null) {
+                escapeWithBreaks(plainText);
+            }
+        }
+
+        if (code) out.append("</code>");
+        if (bold) out.append("</strong>");
+        if (italic) out.append("</em>");
+        if (strikethrough) out.append("</s>");
+        if (underline) out.append("</u>");
+        if (colored) out.append("</span>");
+        if (link) out.append("</a>");
+    }
+
+    private static boolean sameStyle(RichText a, RichText b) {
+        return b.kind() != RichText.Kind.EQUATION
+                && a.annotations() == b.annotations()
+                && Objects.equals(a.href(), b.href())
+                && Objects.equals(a.color(), b.color());
+    }
+
+    /**
+     * 只允许 http(s)、mailto 和没有协议的相对地址，其他协议（如 javascript:）替换为 #
+     */
+    static String safeUrl(String url) {
+        String trimmed = url.trim();
+        String lower = trimmed.toLowerCase();
+        if (lower.startsWith("http://") || lower.startsWith("https://") || lower.startsWith("mailto:")) {
+            return trimmed;
+        }
+        int colon = trimmed.indexOf(':');
+        int slash = trimmed.indexOf('/');
+        if (colon < 0 || slash >= 0 && slash < colon) {
+            return trimmed;
+        }
+        return "#";
+    }
+
+    private void escape(String text) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String replacement = replacement(text.charAt(i));
+            if (replacement != null) {
+                out.append(text, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(text, start, text.length());
+    }
+
+    /**
+     * 转义文本，换行输出为 &lt;br&gt;
+     */
+    private void escapeWithBreaks(String text) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = c == '\n' ? "<br>\n" : replacement(c);
+            if (replacement != null) {
+                out.append(text, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(text, start, text.length());
+    }
+
+    /**
+     * 转义后返回，用于在其他输出中写入HTML属性值
+     */
+    static String escapeHtml(String text) {
+        StringBuilder sb = null;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String replacement = replacement(text.charAt(i));
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(text.length() + 16);
+                }
+                sb.append(text, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        return sb == null ? text : sb.append(text, start, text.length()).toString();
+    }
+
+    private static String replacement(char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&#39;";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import nlob.entity.block.Block;
+import nlob.utils.FileUtil;
+import nlob.utils.Log;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片本地化：Notion托管的图片链接约一小时后过期，同步时把图片下载到仓库里，
+ * 以内容的SHA-256命名保存在 resource/images/ 下，相同内容只保存一份。
+ * <p>
+ * 清单记录图片来源到本地路径的映射，已下载过的图片不再请求。
+ * Notion托管图片的签名参数每次都会变化，来源按去掉查询参数的地址记录；外部图片按完整地址记录。
+ * 只保存Content-Type为图片或文件头能识别为图片的响应，其他响应保留原链接
+ */
+public class ImageStore implements AutoCloseable {
+    static final int FORMAT_VERSION = 1;
+    public static final int DEFAULT_PARALLELISM = 4;
+    /** 超过这个大小的图片不下载，保留原链接 */
+    private static final long MAX_IMAGE_BYTES = 50L * 1024 * 1024;
+    private static final String IMAGE_DIR = "resource/images";
+
+    private final Path root;
+    private final Path manifestFile;
+    private final OkHttpClient httpClient;
+    private final ExecutorService executor;
+    private final Map<String, String> manifest = new ConcurrentHashMap<>();
+
+    private final AtomicInteger downloaded = new AtomicInteger();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param root        输出根目录，图片保存在其下的 resource/images/
+     * @param httpClient  下载使用的客户端，测试时可以指向本地服务
+     * @param parallelism 同时下载的图片数
+     */
+    public ImageStore(Path root, Path manifestFile, OkHttpClient httpClient, int parallelism) {
+        this.root = root;
+        this.manifestFile = manifestFile;
+        this.httpClient = httpClient;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "image-download-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        load();
+    }
+
+    public static OkHttpClient defaultHttpClient() {
+        return new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 下载块树中的所有图片并设置本地路径，下载失败的图片保留原链接
+     */
+    public void localize(List<List<Block>> trees) {
+        Map<String, List<Block.Image>> bySource = new LinkedHashMap<>();
+        for (List<Block> tree : trees) {
+            collectImages(tree, bySource);
+        }
+        if (bySource.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(bySource.size());
+        for (Map.Entry<String, List<Block.Image>> e : bySource.entrySet()) {
+            String source = e.getKey();
+            List<Block.Image> images = e.getValue();
+            futures.add(CompletableFuture.runAsync(() -> {
+                String localPath = resolve(source, images.get(0).getUrl());
+                if (localPath != null) {
+                    for (Block.Image image : images) {
+                        image.setLocalPath(localPath);
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        Log.info("图片: 下载 " + downloaded.get() + " 张, 复用 " + reused.get() + " 张, 失败 " + failed.get() + " 张");
+    }
+
+    /**
+     * 原子地写回清单
+     */
+    public void save() throws IOException {
+        Files.createDirectories(manifestFile.getParent());
+        JSONObject json = new JSONObject();
+        json.put("version", FORMAT_VERSION);
+        json.put("images", new TreeMap<>(manifest));
+        Path temp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        Files.writeString(temp, JSON.toJSONString(json, JSONWriter.Feature.PrettyFormat));
+        Files.move(temp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int getDownloaded() {
+        return downloaded.get();
+    }
+
+    public int getReused() {
+        return reused.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void load() {
+        try {
+            if (Files.exists(manifestFile)) {
+                JSONObject json = JSON.parseObject(Files.readString(manifestFile));
+                if (json != null && json.getIntValue("version") == FORMAT_VERSION) {
+                    JSONObject images = json.getJSONObject("images");
+                    for (String key : images.keySet()) {
+                        manifest.put(key, images.getString(key));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.warn("无法加载图片清单，将重新下载: " + e.getMessage());
+            manifest.clear();
+        }
+    }
+
+    private static void collectImages(List<Block> blocks, Map<String, List<Block.Image>> bySource) {
+        for (Block block : blocks) {
+            if (block instanceof Block.Image image && image.getUrl() != null && isHttp(image.getUrl())) {
+                bySource.computeIfAbsent(sourceKey(image), k -> new ArrayList<>()).add(image);
+            }
+            collectImages(block.getChildren(), bySource);
+        }
+    }
+
+    private static boolean isHttp(String url) {
+        return url.startsWith("http://") || url.startsWith("https://");
+    }
+
+    /**
+     * Notion托管图片去掉签名参数，外部图片使用完整地址
+     */
+    static String sourceKey(Block.Image image) {
+        String url = image.getUrl();
+        if ("file".equals(image.getSource())) {
+            int query = url.indexOf('?');
+            return query >= 0 ? url.substring(0, query) : url;
+        }
+        return url;
+    }
+
+    /**
+     * 返回图片的本地路径，需要时下载；失败时返回null
+     */
+    private String resolve(String source, String url) {
+        String known = manifest.get(source);
+        if (known != null && Files.exists(root.resolve(known))) {
+            reused.incrementAndGet();
+            return known;
+        }
+        try {
+            String localPath = download(url);
+            manifest.put(source, localPath);
+            downloaded.incrementAndGet();
+            return localPath;
+        } catch (Exception e) {
+            Log.warn("图片下载失败，保留原链接: " + url + " (" + e.getMessage() + ")");
+            failed.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * 复制响应体，超过 MAX_IMAGE_BYTES 时立即中止，没有Content-Length的响应也不会写满磁盘
+     */
+    private static void copyLimited(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long size = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            size += n;
+            if (size > MAX_IMAGE_BYTES) {
+                throw new IOException("图片过大: 超过 " + MAX_IMAGE_BYTES + " 字节");
+            }
+            out.write(buffer, 0, n);
+        }
+    }
+
+    /**
+     * 边下载边计算哈希，写入临时文件后按哈希命名；同内容的文件已存在时直接复用
+     */
+    private String download(String url) throws IOException {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+            if (body.contentLength() > MAX_IMAGE_BYTES) {
+                throw new IOException("图片过大: " + body.contentLength() + " 字节");
+            }
+            // 错误页、登录页等非图片响应不保存；未声明具体类型的响应下载后按文件头判断
+            String contentType = body.contentType() != null ? body.contentType().toString().toLowerCase() : null;
+            boolean declaredImage = contentType != null && contentType.startsWith("image/");
+            if (!declaredImage && !isGenericType(contentType)) {
+                throw new IOException("不是图片: " + contentType);
+            }
+
+            Path dir = root.resolve(IMAGE_DIR);
+            Files.createDirectories(dir);
+            Path temp = FileUtil.createTempFile(dir, ".download");
+            try {
+                MessageDigest digest = newDigest();
+                try (InputStream in = new DigestInputStream(body.byteStream(), digest);
+                     OutputStream out = Files.newOutputStream(temp)) {
+                    copyLimited(in, out);
+                }
+                String extension = declaredImage ? extension(contentType, url) : sniffExtension(temp);
+                if (extension == null) {
+                    throw new IOException("不是图片: 无法识别的文件内容");
+                }
+                String name = HexFormat.of().formatHex(digest.digest()) + "." + extension;
+                Path target = dir.resolve(name);
+                if (!Files.exists(target)) {
+                    try {
+                        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException e) {
+                        // 另一个来源的相同图片刚刚写入
+                    }
+                }
+                return IMAGE_DIR + "/" + name;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * 根据Content-Type确定扩展名，无法判断时取地址中的扩展名
+     */
+    static String extension(String contentType, String url) {
+        if (contentType != null) {
+            String type = contentType.toLowerCase();
+            if (type.startsWith("image/png")) return "png";
+            if (type.startsWith("image/jpeg")) return "jpg";
+            if (type.startsWith("image/gif")) return "gif";
+            if (type.startsWith("image/webp")) return "webp";
+            if (type.startsWith("image/svg")) return "svg";
+            if (type.startsWith("image/avif")) return "avif";
+        }
+        String path = url;
+        int query = path.indexOf('?');
+        if (query >= 0) path = path.substring(0, query);
+        int dot = path.lastIndexOf('.');
+        if (dot > path.lastIndexOf('/')) {
+            String ext = path.substring(dot + 1).toLowerCase();
+            if (ext.matches("[a-z0-9]{1,5}")) {
+                return ext.equals("jpeg") ? "jpg" : ext;
+            }
+        }
+        return "bin";
+    }
+
+    /**
+     * 没有Content-Type或只声明为二进制流，部分对象存储对图片也这样返回
+     */
+    private static boolean isGenericType(String contentType) {
+        return contentType == null
+                || contentType.startsWith("application/octet-stream")
+                || contentType.startsWith("binary/octet-stream");
+    }
+
+    /**
+     * 按文件头识别常见图片格式，不是图片时返回null
+     */
+    static String sniffExtension(Path file) throws IOException {
+        byte[] head;
+        try (InputStream in = Files.newInputStream(file)) {
+            head = in.readNBytes(12);
+        }
+        if (startsWith(head, 0, 0x89, 'P', 'N', 'G')) return "png";
+        if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) return "jpg";
+        if (startsWith(head, 0, 'G', 'I', 'F', '8')) return "gif";
+        if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) return "webp";
+        if (startsWith(head, 4, 'f', 't', 'y', 'p', 'a', 'v', 'i')) return "avif";
+        if (startsWith(head, 0, 'B', 'M')) return "bmp";
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... prefix) {
+        if (data.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[offset + i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import nlob.entity.block.Block;
+import nlob.entity.block.ImageInfo;
+import nlob.utils.FileUtil;
+import nlob.utils.Log;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 为本地图片生成缩小版本（默认宽度 480/960/1600）并记录原图尺寸，
+ * 输出时据此生成 srcset 和 width/height，移动端只下载合适大小的图片，页面也不会因图片加载而跳动。
+ * <p>
+ * 本地图片以内容哈希命名，同一路径的内容不会变化，所以结果按路径缓存在清单中，
+ * 已处理过且缩小版本仍然存在的图片不再解码和编码。编码在并行的线程池中进行。
+ * 只处理 javax.imageio 能读取的静态图片（PNG、JPEG、BMP），其他格式只保留原图。
+ * 解码前先从文件头读取尺寸：GIF、多帧图片和像素数超过上限的图片只记录尺寸，不生成缩小版本
+ */
+public class ImageVariants implements AutoCloseable {
+    static final int FORMAT_VERSION = 2;
+    public static final int[] DEFAULT_WIDTHS = {480, 960, 1600};
+    /** 解码的像素数上限，约4000万像素，解码后占用约160MB内存 */
+    static final long MAX_PIXELS = 40_000_000L;
+
+    private final Path root;
+    private final Path manifestFile;
+    private final int[] widths;
+    private final ExecutorService executor;
+    private final Map<String, ImageInfo> cache = new ConcurrentHashMap<>();
+
+    private final AtomicInteger encoded = new AtomicInteger();
+    private final AtomicInteger cached = new AtomicInteger();
+
+    /** 无法解码的图片也记入缓存，宽高为0，下次不再尝试 */
+    private static final ImageInfo UNSUPPORTED = new ImageInfo(0, 0, List.of());
+
+    public ImageVariants(Path root, Path manifestFile, int[] widths) {
+        this.root = root;
+        this.manifestFile = manifestFile;
+        this.widths = widths.clone();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "image-encoder-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        load();
+    }
+
+    /**
+     * 为块树中已下载到本地的图片设置尺寸和缩小版本
+     */
+    public void apply(List<List<Block>> trees) {
+        Map<String, List<Block.Image>> byPath = new LinkedHashMap<>();
+        for (List<Block> tree : trees) {
+            collectImages(tree, byPath);
+        }
+        if (byPath.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(byPath.size());
+        for (Map.Entry<String, List<Block.Image>> e : byPath.entrySet()) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                ImageInfo info = describe(e.getKey());
+                if (info != null && info.width() > 0) {
+                    for (Block.Image image : e.getValue()) {
+                        image.setInfo(info);
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        Log.info("图片缩放: 处理 " + encoded.get() + " 张, 缓存命中 " + cached.get() + " 张");
+    }
+
+    /**
+     * 原子地写回清单，已不存在的图片不再记录
+     */
+    public void save() throws IOException {
+        Files.createDirectories(manifestFile.getParent());
+        JSONObject images = new JSONObject();
+        for (Map.Entry<String, ImageInfo> e : new TreeMap<>(cache).entrySet()) {
+            if (!Files.exists(root.resolve(e.getKey()))) continue;
+            ImageInfo info = e.getValue();
+            JSONObject item = new JSONObject();
+            item.put("width", info.width());
+            item.put("height", info.height());
+            JSONArray variants = new JSONArray();
+            for (ImageInfo.Variant variant : info.variants()) {
+                variants.add(JSONObject.of("width", variant.width(), "path", variant.path()));
+            }
+            item.put("variants", variants);
+            images.put(e.getKey(), item);
+        }
+        JSONObject json = new JSONObject();
+        json.put("version", FORMAT_VERSION);
+        json.put("images", images);
+        Path temp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        Files.writeString(temp, JSON.toJSONString(json, JSONWriter.Feature.PrettyFormat));
+        Files.move(temp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void load() {
+        try {
+            if (Files.exists(manifestFile)) {
+                JSONObject json = JSON.parseObject(Files.readString(manifestFile));
+                if (json != null && json.getIntValue("version") == FORMAT_VERSION) {
+                    JSONObject images = json.getJSONObject("images");
+                    for (String path : images.keySet()) {
+                        JSONObject item = images.getJSONObject(path);
+                        List<ImageInfo.Variant> variants = new ArrayList<>();
+                        JSONArray array = item.getJSONArray("variants");
+                        for (int i = 0; i < array.size(); i++) {
+                            JSONObject variant = array.getJSONObject(i);
+                            variants.add(new ImageInfo.Variant(variant.getIntValue("width"), variant.getString("path")));
+                        }
+                        cache.put(path, new ImageInfo(item.getIntValue("width"), item.getIntValue("height"), variants));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.warn("无法加载图片尺寸清单，将重新生成: " + e.getMessage());
+            cache.clear();
+        }
+    }
+
+    private static void collectImages(List<Block> blocks, Map<String, List<Block.Image>> byPath) {
+        for (Block block : blocks) {
+            if (block instanceof Block.Image image && image.getLocalPath() != null) {
+                byPath.computeIfAbsent(image.getLocalPath(), k -> new ArrayList<>()).add(image);
+            }
+            collectImages(block.getChildren(), byPath);
+        }
+    }
+
+    /**
+     * 读取缓存或解码图片生成缩小版本；出错时返回null，保留原图
+     */
+    private ImageInfo describe(String localPath) {
+        ImageInfo known = cache.get(localPath);
+        if (known != null && variantsExist(known)) {
+            cached.incrementAndGet();
+            return known;
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(root.resolve(localPath).toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                cache.put(localPath, UNSUPPORTED);
+                return UNSUPPORTED;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                // 缩小会丢掉动画，过大的图片解码可能耗尽内存，这些图片只输出宽高
+                if ("gif".equalsIgnoreCase(reader.getFormatName()) || reader.getNumImages(false) > 1
+                        || (long) sourceWidth * sourceHeight > MAX_PIXELS) {
+                    ImageInfo info = new ImageInfo(sourceWidth, sourceHeight, List.of());
+                    cache.put(localPath, info);
+                    return info;
+                }
+
+                BufferedImage source = reader.read(0);
+                String format = outputFormat(localPath);
+                List<ImageInfo.Variant> variants = new ArrayList<>();
+                for (int width : widths) {
+                    if (width >= sourceWidth) continue;
+                    String variantPath = variantPath(localPath, width, format);
+                    Path target = root.resolve(variantPath);
+                    if (!Files.exists(target)) {
+                        writeImage(resize(source, width, format), format, target);
+                    }
+                    variants.add(new ImageInfo.Variant(width, variantPath));
+                }
+                ImageInfo info = new ImageInfo(sourceWidth, sourceHeight, List.copyOf(variants));
+                cache.put(localPath, info);
+                encoded.incrementAndGet();
+                return info;
+            } finally {
+                reader.dispose();
+            }
+        } catch (Exception e) {
+            Log.warn("生成缩小图片失败: " + localPath + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    private boolean variantsExist(ImageInfo info) {
+        for (ImageInfo.Variant variant : info.variants()) {
+            if (!Files.exists(root.resolve(variant.path()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * JPEG保持JPEG，其他格式（可能带透明通道）输出PNG
+     */
+    private static String outputFormat(String localPath) {
+        String lower = localPath.toLowerCase();
+        return lower.endsWith(".jpg") || lower.endsWith(".jpeg") ? "jpg" : "png";
+    }
+
+    /**
+     * resource/images/&lt;hash&gt;.png 的缩小版本为 resource/images/&lt;hash&gt;-960.png
+     */
+    static String variantPath(String localPath, int width, String format) {
+        int dot = localPath.lastIndexOf('.');
+        String base = dot > localPath.lastIndexOf('/') ? localPath.substring(0, dot) : localPath;
+        return base + "-" + width + "." + format;
+    }
+
+    /**
+     * 逐次减半缩小到目标宽度，比一次缩小的画质好
+     */
+    private static BufferedImage resize(BufferedImage source, int width, String format) {
+        int type = "jpg".equals(format) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            int nextWidth = Math.max(width, currentWidth / 2);
+            int nextHeight = Math.max(1, (int) Math.round((double) source.getHeight() * nextWidth / source.getWidth()));
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, nextWidth, nextHeight, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+            currentWidth = nextWidth;
+            currentHeight = nextHeight;
+        } while (currentWidth > width);
+        return current;
+    }
+
+    private static void writeImage(BufferedImage image, String format, Path target) throws IOException {
+        Path temp = FileUtil.createTempFile(target.getParent(), ".variant");
+        try {
+            if (!ImageIO.write(image, "jpg".equals(format) ? "jpeg" : format, temp.toFile())) {
+                throw new IOException("不支持的输出格式: " + format);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
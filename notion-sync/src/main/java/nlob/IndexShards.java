@@ -0,0 +1,120 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import nlob.entity.IndexEntry;
+import nlob.utils.Log;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 把索引拆成前端按需加载的小文件，写在 blogs/index/ 下：
+ * <ul>
+ *     <li>manifest.json：文章总数、分页数和标签列表</li>
+ *     <li>index-1.json、index-2.json…：按日期倒序的固定大小分页</li>
+ *     <li>tags/*.json：每个标签下的文章</li>
+ *     <li>ids.json：页面id到文件名的映射，文章页只需要它</li>
+ * </ul>
+ * 本次没有生成的旧分片会被删除
+ */
+public class IndexShards {
+    static final int FORMAT_VERSION = 1;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final Path dir;
+    private final int pageSize;
+    private final OutputStage output;
+    private final Set<Path> generated = new HashSet<>();
+
+    public IndexShards(Path dir, int pageSize, OutputStage output) {
+        this.dir = dir;
+        this.pageSize = pageSize;
+        this.output = output;
+    }
+
+    public void write(BlogIndex index) throws IOException {
+        List<IndexEntry> entries = new ArrayList<>(index.entries());
+
+        // 分页
+        int pages = (entries.size() + pageSize - 1) / pageSize;
+        for (int page = 1; page <= pages; page++) {
+            List<IndexEntry> slice = entries.subList((page - 1) * pageSize, Math.min(page * pageSize, entries.size()));
+            writeFile(dir.resolve("index-" + page + ".json"), slice);
+        }
+
+        // 标签分片，标签按名称排序
+        Map<String, List<IndexEntry>> byTag = new TreeMap<>();
+        for (IndexEntry entry : entries) {
+            if (entry.getTags() == null) continue;
+            for (String tag : entry.getTags().split(",")) {
+                tag = tag.trim();
+                if (!tag.isEmpty()) {
+                    byTag.computeIfAbsent(tag, t -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+        JSONArray tags = new JSONArray();
+        Set<String> tagFiles = new HashSet<>();
+        for (Map.Entry<String, List<IndexEntry>> e : byTag.entrySet()) {
+            String file = tagFileName(e.getKey(), tagFiles);
+            writeFile(dir.resolve("tags").resolve(file), e.getValue());
+
+            JSONObject tag = new JSONObject();
+            tag.put("name", e.getKey());
+            tag.put("count", e.getValue().size());
+            tag.put("file", "tags/" + file);
+            tags.add(tag);
+        }
+
+        // id到文件名的映射
+        Map<String, String> ids = new LinkedHashMap<>();
+        for (IndexEntry entry : entries) {
+            ids.put(entry.getId(), entry.getFilename());
+        }
+        writeJson(dir.resolve("ids.json"), JSON.toJSONString(ids));
+
+        JSONObject manifest = new JSONObject();
+        manifest.put("version", FORMAT_VERSION);
+        manifest.put("total", entries.size());
+        manifest.put("pageSize", pageSize);
+        manifest.put("pages", pages);
+        manifest.put("tags", tags);
+        writeJson(dir.resolve("manifest.json"), JSON.toJSONString(manifest, JSONWriter.Feature.PrettyFormat));
+
+        output.deleteStale(dir, generated);
+        output.deleteStale(dir.resolve("tags"), generated);
+        Log.info("生成索引分片: " + pages + " 页, " + byTag.size() + " 个标签");
+    }
+
+    private void writeFile(Path file, List<IndexEntry> entries) throws IOException {
+        generated.add(file);
+        output.write(file, writer -> BlogIndex.writeEntries(entries, writer));
+    }
+
+    private void writeJson(Path file, String json) throws IOException {
+        generated.add(file);
+        output.write(file, writer -> writer.write(json));
+    }
+
+    /**
+     * 标签可能含中文或符号，文件名用名称的哈希值，冲突时追加序号
+     */
+    private static String tagFileName(String tag, Set<String> used) {
+        String base = Integer.toHexString(tag.hashCode());
+        String name = base + ".json";
+        for (int i = 2; !used.add(name); i++) {
+            name = base + "-" + i + ".json";
+        }
+        return name;
+    }
+}
@@ -0,0 +1,76 @@
+package nlob;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过OkHttp访问真实的Notion API
+ */
+public class LiveTransport implements NotionTransport {
+    public static final String DEFAULT_API_BASE = "https://api.notion.com/v1";
+    private static final String NOTION_VERSION = "2022-06-28";
+    private static final MediaType JSON_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private final String apiBase;
+    private final String apiToken;
+    private final OkHttpClient httpClient;
+
+    public LiveTransport(String apiToken) {
+        this(DEFAULT_API_BASE, apiToken, defaultHttpClient());
+    }
+
+    /**
+     * @param apiBase API根地址，不带末尾的斜杠，可以指向本地的模拟服务
+     */
+    public LiveTransport(String apiBase, String apiToken, OkHttpClient httpClient) {
+        this.apiBase = apiBase.endsWith("/") ? apiBase.substring(0, apiBase.length() - 1) : apiBase;
+        this.apiToken = apiToken;
+        this.httpClient = httpClient;
+    }
+
+    public static OkHttpClient defaultHttpClient() {
+        return new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true) // 自动重试连接失败
+                .build();
+    }
+
+    @Override
+    public Response send(String method, String path, String body) throws IOException {
+        Request.Builder builder = new Request.Builder()
+                .url(apiBase + path)
+                .header("Authorization", "Bearer " + apiToken)
+                .header("Notion-Version", NOTION_VERSION);
+        if (body != null) {
+            builder.method(method, RequestBody.create(body, JSON_TYPE));
+        } else {
+            builder.method(method, null);
+        }
+
+        okhttp3.Response response = httpClient.newCall(builder.build()).execute();
+        ResponseBody responseBody = response.body();
+        InputStream in;
+        if (responseBody != null) {
+            in = responseBody.byteStream();
+        } else {
+            response.close();
+            in = InputStream.nullInputStream();
+        }
+        return new Response(response.code(), response.header("Retry-After"), in);
+    }
+
+    @Override
+    public void close() {
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+}
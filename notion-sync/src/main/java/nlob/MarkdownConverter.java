@@ -1,259 +1,476 @@
 package nlob;
 
-import com.alibaba.fastjson2.JSONArray;
-import com.alibaba.fastjson2.JSONObject;
-
+import nlob.entity.block.Block;
+import nlob.entity.block.ImageInfo;
+import nlob.entity.block.RichText;
+import nlob.utils.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 将块树转换为Markdown，直接写入目标 Appendable（通常是文件的缓冲Writer），
+ * 不在内存中拼出整篇文章。深度优先遍历一次，每个块只访问一次
+ */
 public class MarkdownConverter {
+    private static final String INDENT = "  ";
+    private static final String BACKGROUND_SUFFIX = "_background";
 
-    public String convertBlocksToMarkdown(JSONArray blocks) {
-        StringBuilder markdown = new StringBuilder();
+    private final Appendable out;
+    private final TextSink textSink;
+    /** 下一个块之前是否需要空行分隔 */
+    private boolean needSeparator;
 
-        for (int i = 0; i < blocks.size(); i++) {
-            JSONObject block = blocks.getJSONObject(i);
-            String blockMarkdown = convertBlockWithChildren(block, blocks, i);
-            if (blockMarkdown != null && !blockMarkdown.isEmpty()) {
-                markdown.append(blockMarkdown).append("\n\n");
-            }
-        }
+    /**
+     * 接收转换过程中输出的纯文本，用于在同一次遍历中建立搜索索引
+     */
+    public interface TextSink {
+        void text(CharSequence text);
 
-        return markdown.toString().trim();
+        /** 一个块（或表格单元格）的文本结束 */
+        void endBlock();
+    }
+
+    public MarkdownConverter(Appendable out) {
+        this(out, null);
+    }
+
+    public MarkdownConverter(Appendable out, TextSink textSink) {
+        this.out = out;
+        this.textSink = textSink;
     }
 
     /**
-     * 转换块及其子块
+     * 转换为字符串，用于内容较短或需要整体处理的场合
      */
-    private String convertBlockWithChildren(JSONObject block, JSONArray allBlocks, int currentIndex) {
-        String type = block.getString("type");
-        if (type == null) return "";
+    public static String toMarkdown(List<Block> blocks) {
+        StringBuilder markdown = new StringBuilder();
+        try {
+            new MarkdownConverter(markdown).write(blocks);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return markdown.toString();
+    }
 
-        JSONObject content = block.getJSONObject(type);
-        if (content == null) return "";
+    /**
+     * 写出块列表，块之间以空行分隔，末尾不带空行
+     */
+    public void write(List<Block> blocks) throws IOException {
+        convertBlocks(blocks, "");
+    }
 
-        int depth = block.getIntValue("_depth", 0);
-        String indent = "  ".repeat(depth);
+    private void convertBlocks(List<Block> blocks, String indent) throws IOException {
+        for (Block block : blocks) {
+            convertBlock(block, indent);
+        }
+    }
 
-        // 处理折叠块
-        if ("toggle".equals(type)) {
-            return convertToggleWithChildren(block, allBlocks, currentIndex, indent);
+    /**
+     * 开始一个新块，与上一个块之间空一行
+     */
+    private void startBlock() throws IOException {
+        if (textSink != null) {
+            textSink.endBlock();
         }
-        //处理表格
-        if("table".equals(type)) {
-            JSONArray tables = new JSONArray();
-            JSONObject tableRowObject = allBlocks.getJSONObject(++currentIndex);
-            while (tableRowObject.get("type").equals("table_row")){
-                tables.add(tableRowObject);
-                tableRowObject = allBlocks.getJSONObject(++currentIndex);
-            }
-            return  convertTableRow(tables);
+        if (needSeparator) {
+            out.append("\n\n");
         }
+        needSeparator = true;
+    }
 
-        // 处理其他块类型
-        return convertSingleBlock(block, indent);
+    /**
+     * 转换块及其子块
+     */
+    private void convertBlock(Block block, String indent) throws IOException {
+        switch (block.getType()) {
+            case TOGGLE:
+                convertToggle((Block.Text) block, indent);
+                return;
+
+            case TABLE:
+                convertTable(block, indent);
+                return;
+
+            case QUOTE:
+                convertQuote("> ", ((Block.Text) block).getRichText(), block.getChildren(), indent);
+                return;
+
+            case CALLOUT:
+                convertQuote("> 💡 ", ((Block.Callout) block).getRichText(), block.getChildren(), indent);
+                return;
+
+            case COLUMN_LIST:
+            case COLUMN:
+            case CHILD_PAGE:
+                // 列布局本身不生成内容，子页面只输出标题，子块与其同级输出
+                convertSingleBlock(block, indent);
+                convertBlocks(block.getChildren(), indent);
+                return;
+
+            default:
+                convertSingleBlock(block, indent);
+                // 列表项、待办等的子块缩进一级
+                convertBlocks(block.getChildren(), indent + INDENT);
+        }
     }
 
     /**
      * 处理折叠块及其子内容
      */
-    private String convertToggleWithChildren(JSONObject toggleBlock, JSONArray allBlocks, int currentIndex, String indent) {
-        JSONObject content = toggleBlock.getJSONObject("toggle");
-        String toggleText = convertRichText(content.getJSONArray("rich_text"));
-
-        StringBuilder toggleMarkdown = new StringBuilder();
-        toggleMarkdown.append(indent).append("<details>\n");
-        toggleMarkdown.append(indent).append("<summary>").append(toggleText).append("</summary>\n\n");
-
-        // 查找并处理所有子块
-        String toggleId = toggleBlock.getString("id");
-        int toggleDepth = toggleBlock.getIntValue("_depth", 0);
-
-        // 从下一个块开始，找到所有属于这个折叠块的子块
-        int childCount = 0;
-        for (int i = currentIndex + 1; i < allBlocks.size(); i++) {
-            JSONObject childBlock = allBlocks.getJSONObject(i);
-            int childDepth = childBlock.getIntValue("_depth", 0);
-            String parentId = childBlock.getString("_parent_id");
-
-            // 如果遇到同级或更浅的块，说明子块结束了
-            if (childDepth <= toggleDepth) {
-                break;
-            }
+    private void convertToggle(Block.Text toggleBlock, String indent) throws IOException {
+        startBlock();
+        out.append(indent).append("<details>\n");
+        out.append(indent).append("<summary>");
+        appendRichText(toggleBlock.getRichText());
+        out.append("</summary>");
 
-            // 如果这个子块属于当前折叠块
-            if (toggleId.equals(parentId) && childDepth == toggleDepth + 1) {
-                String childMarkdown = convertSingleBlock(childBlock, indent + "  ");
-                if (childMarkdown != null && !childMarkdown.isEmpty()) {
-                    toggleMarkdown.append(childMarkdown).append("\n\n");
-                    childCount++;
-                }
-            }
-        }
+        convertBlocks(toggleBlock.getChildren(), indent + INDENT);
 
-        toggleMarkdown.append(indent).append("</details>");
+        startBlock();
+        out.append(indent).append("</details>");
+    }
 
-        System.out.println("折叠块 '" + toggleText + "' 包含 " + childCount + " 个子块");
-        return toggleMarkdown.toString();
+    /**
+     * 处理引用和标注，子块放在同一个引用块内
+     */
+    private void convertQuote(String marker, List<RichText> richText, List<Block> children, String indent) throws IOException {
+        startBlock();
+        out.append(indent).append(marker);
+        appendRichText(richText);
+        if (!children.isEmpty()) {
+            out.append('\n').append(indent).append(">\n");
+            new MarkdownConverter(new LinePrefixer(out, indent + "> "), textSink).write(children);
+        }
     }
 
     /**
      * 转换单个块（不处理子块）
      */
-    private String convertSingleBlock(JSONObject block, String indent) {
-        String type = block.getString("type");
-        if (type == null) return "";
-
-        JSONObject content = block.getJSONObject(type);
-        if (content == null) return "";
-
-        switch (type) {
-            case "paragraph":
-                return indent + convertRichText(content.getJSONArray("rich_text"));
+    private void convertSingleBlock(Block block, String indent) throws IOException {
+        switch (block.getType()) {
+            case PARAGRAPH:
+                startBlock();
+                out.append(indent);
+                appendRichText(((Block.Text) block).getRichText());
+                break;
 
-            case "heading_1":
-                return indent + "# " + convertRichText(content.getJSONArray("rich_text"));
+            case HEADING_1:
+                startBlock();
+                out.append(indent).append("# ");
+                appendRichText(((Block.Text) block).getRichText());
+                break;
 
-            case "heading_2":
-                return indent + "## " + convertRichText(content.getJSONArray("rich_text"));
+            case HEADING_2:
+                startBlock();
+                out.append(indent).append("## ");
+                appendRichText(((Block.Text) block).getRichText());
+                break;
 
-            case "heading_3":
-                return indent + "### " + convertRichText(content.getJSONArray("rich_text"));
+            case HEADING_3:
+                startBlock();
+                out.append(indent).append("### ");
+                appendRichText(((Block.Text) block).getRichText());
+                break;
 
-            case "bulleted_list_item":
-                return indent + "- " + convertRichText(content.getJSONArray("rich_text"));
+            case BULLETED_LIST_ITEM:
+                startBlock();
+                out.append(indent).append("- ");
+                appendRichText(((Block.Text) block).getRichText());
+                break;
 
-            case "numbered_list_item":
-                return indent + "1. " + convertRichText(content.getJSONArray("rich_text"));
+            case NUMBERED_LIST_ITEM:
+                startBlock();
+                out.append(indent).append("1. ");
+                appendRichText(((Block.Text) block).getRichText());
+                break;
 
-            case "to_do":
-                boolean checked = content.getBooleanValue("checked");
-                String todoText = convertRichText(content.getJSONArray("rich_text"));
-                return indent + (checked ? "- [x] " : "- [ ] ") + todoText;
+            case TO_DO:
+                Block.ToDo toDo = (Block.ToDo) block;
+                startBlock();
+                out.append(indent).append(toDo.isChecked() ? "- [x] " : "- [ ] ");
+                appendRichText(toDo.getRichText());
+                break;
 
-            case "code":
-                String language = content.getString("language");
+            case CODE:
+                Block.Code codeBlock = (Block.Code) block;
+                String language = codeBlock.getLanguage();
                 if (language == null) language = "";
-                String code = convertRichText(content.getJSONArray("rich_text"));
-                return indent + "```" + language + "\n" + code + "\n```";
+                startBlock();
+                out.append(indent).append("```").append(language).append('\n');
+                appendPlainText(codeBlock.getRichText());
+                out.append("\n```");
+                break;
+
+            case CHILD_PAGE:
+                String title = ((Block.ChildPage) block).getTitle();
+                startBlock();
+                out.append(indent).append("**子页面: ").append(title).append("**");
+                break;
 
-            case "quote":
-                return indent + "> " + convertRichText(content.getJSONArray("rich_text"));
+            case IMAGE:
+                convertImage((Block.Image) block, indent);
+                break;
 
-            case "callout":
-                String calloutText = convertRichText(content.getJSONArray("rich_text"));
-                return indent + "> 💡 " + calloutText;
+            case DIVIDER:
+                startBlock();
+                out.append(indent).append("---");
+                break;
 
-            case "child_page":
-                String title = content.getString("title");
-                return indent + "**子页面: " + title + "**";
+            case EQUATION:
+                startBlock();
+                out.append(indent).append("$$").append(((Block.Equation) block).getExpression()).append("$$");
+                break;
 
+            case BOOKMARK:
+                String url = ((Block.Bookmark) block).getUrl();
+                if (url != null) {
+                    startBlock();
+                    out.append(indent).append('[').append(url).append("](").append(url).append(')');
+                }
+                break;
 
-            case "image":
-                return convertImage(content, indent);
+            case COLUMN_LIST:
+            case COLUMN:
+            case TABLE_ROW:
+                // 列布局本身不生成内容，表格行由表格处理
+                break;
 
-            case "column_list":
-            case "column":
-                // 列布局本身不生成内容
-                return "";
+            case UNSUPPORTED:
+                Block.Unsupported unsupported = (Block.Unsupported) block;
+                Log.debug("未处理的块类型: %s", unsupported.getApiType());
+                if (!unsupported.getRichText().isEmpty()) {
+                    startBlock();
+                    out.append(indent);
+                    appendRichText(unsupported.getRichText());
+                }
+                break;
 
             default:
-                System.out.println("未处理的块类型: " + type);
-                if (content.containsKey("rich_text")) {
-                    return indent + convertRichText(content.getJSONArray("rich_text"));
-                }
-                return "";
+                break;
         }
     }
 
     /**
-     * 转换表格
+     * 转换表格，第一行作为表头
      */
-    private String convertTableRow(JSONArray content) {
-        StringBuilder ans = new StringBuilder();
-        StringBuilder separator = new StringBuilder("|");
-        for (int i = 0; i < content.size(); i++) {
-            JSONObject tableRow = content.getJSONObject(i).getJSONObject("table_row");
-            JSONArray cells = tableRow.getJSONArray("cells");
-            StringBuilder row = new StringBuilder("|");
-
-            for (int j = 0; j < cells.size(); j++) {
-                JSONArray cellText = cells.getJSONArray(j);
-                String cellContent = convertRichText(cellText);
-                row.append(" ").append(cellContent).append(" |");
-                if(i==0){
-                    separator.append("---|");
-                }
+    private void convertTable(Block table, String indent) throws IOException {
+        boolean started = false;
+        for (Block child : table.getChildren()) {
+            if (!(child instanceof Block.TableRow row)) continue;
+            List<List<RichText>> cells = row.getCells();
+            if (cells.isEmpty()) continue;
+
+            if (started) {
+                out.append('\n');
+            } else {
+                startBlock();
             }
-            if (row.toString().equals("|")) {
-                return row.toString();
+            out.append(indent).append('|');
+            for (List<RichText> cell : cells) {
+                if (textSink != null) {
+                    textSink.endBlock();
+                }
+                out.append(' ');
+                appendRichText(cell);
+                out.append(" |");
             }
-            ans.append(row).append("\n");
-            if (i==0){
-                separator.append("\n");
-                ans.append(separator);
+            if (!started) {
+                out.append('\n').append(indent).append('|');
+                for (int j = 0; j < cells.size(); j++) {
+                    out.append("---|");
+                }
+                started = true;
             }
         }
-        return ans.toString();
-
     }
 
     /**
      * 转换图片
      */
-    private String convertImage(JSONObject content, String indent) {
-        JSONObject image = content.getJSONObject("image");
-        if (image != null) {
-            String url = image.getString("url");
-            if (url != null) {
-                return indent + "![](" + url + ")";
-            }
+    private void convertImage(Block.Image image, String indent) throws IOException {
+        String url = image.getDisplayUrl();
+        if (url == null) {
+            return;
         }
-        return "";
+        startBlock();
+        ImageInfo info = image.getInfo();
+        if (info == null || image.getLocalPath() == null) {
+            out.append(indent).append("![](").append(url).append(')');
+            return;
+        }
+        // 有尺寸信息时输出HTML，带上 srcset 和宽高
+        out.append(indent).append("<img src=\"").append(HtmlConverter.escapeHtml(HtmlConverter.safeUrl(url))).append('"');
+        if (!info.variants().isEmpty()) {
+            out.append(" srcset=\"").append(HtmlConverter.escapeHtml(info.srcset(image.getLocalPath())))
+                    .append("\" sizes=\"").append(ImageInfo.SIZES).append('"');
+        }
+        out.append(" width=\"").append(Integer.toString(info.width()))
+                .append("\" height=\"").append(Integer.toString(info.height()))
+                .append("\" alt=\"\" loading=\"lazy\">");
     }
 
     /**
-     * 转换富文本
+     * 只写出纯文本，用于代码块：围栏内的样式标记和颜色标签会原样显示，破坏代码
      */
-    private String convertRichText(JSONArray richText) {
-        if (richText == null || richText.isEmpty()) {
-            return "";
+    private void appendPlainText(List<RichText> richText) throws IOException {
+        if (richText == null) {
+            return;
+        }
+        for (RichText text : richText) {
+            String plainText = text.plainText();
+            if (plainText != null) {
+                out.append(plainText);
+                if (textSink != null) {
+                    textSink.text(plainText);
+                }
+            }
         }
+    }
 
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < richText.size(); i++) {
-            JSONObject text = richText.getJSONObject(i);
-            String plainText = text.getString("plain_text");
-            if (plainText == null) continue;
+    /**
+     * 转换富文本，标记和文本直接写入输出。
+     * 样式、链接和颜色都相同的相邻片段合并输出，避免生成 **a****b** 这样的标记
+     */
+    private void appendRichText(List<RichText> richText) throws IOException {
+        if (richText == null) {
+            return;
+        }
 
-            JSONObject annotations = text.getJSONObject("annotations");
-            String formattedText = applyTextFormatting(plainText, annotations);
+        int size = richText.size();
+        int i = 0;
+        while (i < size) {
+            RichText first = richText.get(i);
+            if (first.kind() == RichText.Kind.EQUATION) {
+                if (first.plainText() != null) {
+                    out.append('$').append(first.plainText()).append('$');
+                }
+                i++;
+                continue;
+            }
 
-            String href = text.getString("href");
-            if (href != null && !href.isEmpty()) {
-                formattedText = "[" + formattedText + "](" + href + ")";
+            int end = i + 1;
+            while (end < size && sameStyle(first, richText.get(end))) {
+                end++;
             }
+            appendRun(richText, i, end, first);
+            i = end;
+        }
+    }
 
-            result.append(formattedText);
+    /**
+     * 输出 [from, to) 范围内样式相同的片段，只写一次开闭标记
+     */
+    private void appendRun(List<RichText> richText, int from, int to, RichText style) throws IOException {
+        String href = style.href();
+        boolean link = href != null && !href.isEmpty();
+        String color = style.color();
+        boolean colored = color != null && !RichText.DEFAULT_COLOR.equals(color);
+        int annotations = style.annotations();
+        boolean code = (annotations & RichText.CODE) != 0;
+        boolean bold = !code && (annotations & RichText.BOLD) != 0;
+        boolean italic = !code && (annotations & RichText.ITALIC) != 0;
+        boolean strikethrough = !code && (annotations & RichText.STRIKETHROUGH) != 0;
+        boolean underline = !code && (annotations & RichText.UNDERLINE) != 0;
+
+        if (link) out.append('[');
+        if (colored) appendColorSpan(color);
+        if (underline) out.append("<u>");
+        if (strikethrough) out.append("~~");
+        if (italic) out.append('*');
+        if (bold) out.append("**");
+        if (code) out.append('`');
+
+        for (int i = from; i < to; i++) {
+            String plainText = richText.get(i).plainText();
+            if (plainText != null) {
+                out.append(plainText);
+                if (textSink != null) {
+                    textSink.text(plainText);
+                }
+            }
         }
 
-        return result.toString();
+        if (code) out.append('`');
+        if (bold) out.append("**");
+        if (italic) out.append('*');
+        if (strikethrough) out.append("~~");
+        if (underline) out.append("</u>");
+        if (colored) out.append("</span>");
+        if (link) out.append("](").append(href).append(')');
+    }
+
+    private static boolean sameStyle(RichText a, RichText b) {
+        return b.kind() != RichText.Kind.EQUATION
+                && a.annotations() == b.annotations()
+                && Objects.equals(a.href(), b.href())
+                && Objects.equals(a.color(), b.color());
     }
 
-    private String applyTextFormatting(String text, JSONObject annotations) {
-        if (annotations == null) return text;
+    /**
+     * Notion颜色名如 red、blue_background，分别对应文字颜色和背景色
+     */
+    private void appendColorSpan(String color) throws IOException {
+        if (color.endsWith(BACKGROUND_SUFFIX)) {
+            out.append("<span style=\"background-color: ")
+                    .append(color, 0, color.length() - BACKGROUND_SUFFIX.length())
+                    .append("\">");
+        } else {
+            out.append("<span style=\"color: ").append(color).append("\">");
+        }
+    }
 
-        boolean bold = annotations.getBooleanValue("bold");
-        boolean italic = annotations.getBooleanValue("italic");
-        boolean code = annotations.getBooleanValue("code");
-        boolean strikethrough = annotations.getBooleanValue("strikethrough");
+    /**
+     * 在每一行行首加上前缀，用于把子块写进引用块。空行只写去掉尾部空格的前缀
+     */
+    private static final class LinePrefixer implements Appendable {
+        private final Appendable out;
+        private final String prefix;
+        private final String blankPrefix;
+        private boolean atLineStart = true;
+
+        LinePrefixer(Appendable out, String prefix) {
+            this.out = out;
+            this.prefix = prefix;
+            this.blankPrefix = prefix.stripTrailing();
+        }
 
-        if (code) {
-            return "`" + text + "`";
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
         }
 
-        String result = text;
-        if (bold) result = "**" + result + "**";
-        if (italic) result = "*" + result + "*";
-        if (strikethrough) result = "~~" + result + "~~";
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            int lineStart = start;
+            for (int i = start; i < end; i++) {
+                char c = csq.charAt(i);
+                if (atLineStart) {
+                    out.append(c == '\n' ? blankPrefix : prefix);
+                    atLineStart = false;
+                }
+                if (c == '\n') {
+                    out.append(csq, lineStart, i + 1);
+                    lineStart = i + 1;
+                    atLineStart = true;
+                }
+            }
+            if (lineStart < end) {
+                out.append(csq, lineStart, end);
+            }
+            return this;
+        }
 
-        return result;
+        @Override
+        public Appendable append(char c) throws IOException {
+            if (atLineStart) {
+                out.append(c == '\n' ? blankPrefix : prefix);
+            }
+            out.append(c);
+            atLineStart = c == '\n';
+            return this;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,262 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * 一次同步的运行指标：各接口的请求数、状态码和延迟分布，接收的字节数，每个页面的块数，
+ * 每篇文章的渲染耗时，以及同步结束时填入的文件、缓存等计数。
+ * 同步结束时写出JSON报告，保存在 .notion-sync/reports 下，用于比较不同运行的开销。
+ * 所有记录方法都是线程安全的，只做原子计数
+ */
+public class Metrics {
+    static final int FORMAT_VERSION = 1;
+    /** 保留的报告数，更早的报告删除 */
+    private static final int MAX_REPORTS = 100;
+    private static final DateTimeFormatter REPORT_NAME =
+            DateTimeFormatter.ofPattern("'sync-'yyyyMMdd-HHmmss-SSS'.json'").withZone(ZoneOffset.UTC);
+
+    private static final long[] LATENCY_BOUNDS_MILLIS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+    private static final long[] BLOCK_COUNT_BOUNDS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+    private static final long[] RENDER_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 1000};
+
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final Histogram blocksPerPage = new Histogram(BLOCK_COUNT_BOUNDS);
+    private final Histogram renderMillis = new Histogram(RENDER_BOUNDS_MILLIS);
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次HTTP请求（每次重试单独记录）
+     *
+     * @param status 响应状态码，网络错误时为0
+     */
+    public void recordRequest(String endpoint, int status, long nanos) {
+        endpoints.computeIfAbsent(endpoint, k -> new Endpoint()).record(status, nanos);
+    }
+
+    /**
+     * 包装响应体，读取的字节计入接收量
+     */
+    public InputStream countBytes(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytesReceived.incrementAndGet();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    bytesReceived.addAndGet(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * 记录一个页面的块数（包括嵌套块）
+     */
+    public void recordPageBlocks(int blocks) {
+        blocksPerPage.record(blocks);
+    }
+
+    /**
+     * 记录一篇文章的渲染和写出耗时
+     */
+    public void recordRender(long nanos) {
+        renderMillis.record(nanos / 1_000_000);
+    }
+
+    /**
+     * 设置报告中的一项汇总值，例如写入的文件数、缓存命中数
+     */
+    public void set(String name, Object value) {
+        if (value != null) {
+            values.put(name, value);
+        }
+    }
+
+    /**
+     * 读取一项汇总值，没有设置时为null
+     */
+    public Object get(String name) {
+        return values.get(name);
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * 所有接口的请求总数
+     */
+    public long getRequests() {
+        long requests = 0;
+        for (Endpoint endpoint : endpoints.values()) {
+            requests += endpoint.latency.count.get();
+        }
+        return requests;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("version", FORMAT_VERSION);
+        json.put("startedAt", startedAt.toString());
+        json.put("durationMillis", (System.nanoTime() - startNanos) / 1_000_000);
+        json.put("requests", getRequests());
+        json.put("bytesReceived", bytesReceived.get());
+
+        JSONObject endpointsJson = new JSONObject();
+        for (Map.Entry<String, Endpoint> e : new TreeMap<>(endpoints).entrySet()) {
+            endpointsJson.put(e.getKey(), e.getValue().toJson());
+        }
+        json.put("endpoints", endpointsJson);
+        json.put("blocksPerPage", blocksPerPage.toJson());
+        json.put("renderMillis", renderMillis.toJson());
+        json.put("values", new TreeMap<>(values));
+        return json;
+    }
+
+    /**
+     * 在目录中写出本次运行的报告，只保留最近的报告
+     *
+     * @return 报告文件
+     */
+    public Path writeReport(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path file = dir.resolve(REPORT_NAME.format(startedAt));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, JSON.toJSONString(toJson(), JSONWriter.Feature.PrettyFormat));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // 文件名按时间排序
+        List<Path> reports = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(f -> f.getFileName().toString().startsWith("sync-") && f.getFileName().toString().endsWith(".json"))
+                    .sorted()
+                    .forEach(reports::add);
+        }
+        for (int i = 0; i < reports.size() - MAX_REPORTS; i++) {
+            Files.deleteIfExists(reports.get(i));
+        }
+        return file;
+    }
+
+    /**
+     * 一个接口的请求统计
+     */
+    private static final class Endpoint {
+        private final Histogram latency = new Histogram(LATENCY_BOUNDS_MILLIS);
+        private final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+
+        void record(int status, long nanos) {
+            latency.record(nanos / 1_000_000);
+            statuses.computeIfAbsent(status, k -> new AtomicLong()).incrementAndGet();
+        }
+
+        JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("requests", latency.count.get());
+            JSONObject statusJson = new JSONObject();
+            for (Map.Entry<Integer, AtomicLong> e : new TreeMap<>(statuses).entrySet()) {
+                statusJson.put(e.getKey() == 0 ? "error" : e.getKey().toString(), e.getValue().get());
+            }
+            json.put("status", statusJson);
+            json.put("latencyMillis", latency.toJson());
+            return json;
+        }
+    }
+
+    /**
+     * 固定分桶的直方图，桶的上界由调用方给出，最后一个桶没有上界。
+     * 分位数取所在桶的上界，只是近似值
+     */
+    private static final class Histogram {
+        private final long[] bounds;
+        private final AtomicLongArray buckets;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(long[] bounds) {
+            this.bounds = bounds;
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        void record(long value) {
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        private long percentile(double p) {
+            long total = count.get();
+            long rank = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return i < bounds.length ? Math.min(bounds[i], max.get()) : max.get();
+                }
+            }
+            return max.get();
+        }
+
+        JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            long total = count.get();
+            json.put("count", total);
+            json.put("sum", sum.get());
+            json.put("mean", total > 0 ? (double) sum.get() / total : 0);
+            json.put("max", max.get());
+            if (total > 0) {
+                json.put("p50", percentile(0.5));
+                json.put("p90", percentile(0.9));
+                json.put("p99", percentile(0.99));
+            }
+            JSONArray bucketJson = new JSONArray();
+            for (int i = 0; i < buckets.length(); i++) {
+                long n = buckets.get(i);
+                if (n > 0) {
+                    bucketJson.add(JSONObject.of("le", i < bounds.length ? bounds[i] : null, "count", n));
+                }
+            }
+            json.put("buckets", bucketJson);
+            return json;
+        }
+    }
+}
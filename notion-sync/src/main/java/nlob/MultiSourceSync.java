@@ -0,0 +1,163 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import nlob.entity.SyncSource;
+import nlob.utils.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 多数据库同步：按配置文件把多个Notion数据库同步到各自的输出目录。
+ * 所有数据库在同一个JVM中并发同步，共享一个传输层（HTTP连接池）、一个限流器和页面、子块两组工作线程，
+ * 工作线程轮流执行各数据库的任务；每个数据库有自己的水位线、缓存、索引和运行报告。
+ * <p>
+ * 配置文件格式：
+ * <pre>
+ * {
+ *   "sources": [
+ *     {"name": "blog", "databaseId": "${NOTION_DATABASE_ID}", "outputDir": "."},
+ *     {"name": "notes", "databaseId": "...", "outputDir": "notes"}
+ *   ]
+ * }
+ * </pre>
+ */
+public class MultiSourceSync implements AutoCloseable {
+    private static final Pattern ENV_REFERENCE = Pattern.compile("\\$\\{(\\w+)}");
+
+    private final NotionSync options;
+    private final List<SyncSource> sources;
+    private final NotionTransport transport;
+    private final RateLimiter rateLimiter;
+    private final FairExecutor pageWorkers;
+    private final FairExecutor blockWorkers;
+
+    /**
+     * @param options 各数据库共用的选项，数据库id和输出目录取自配置
+     */
+    public MultiSourceSync(NotionSync options, List<SyncSource> sources) throws IOException {
+        this.options = options;
+        this.sources = sources;
+        this.transport = options.createTransport();
+        this.rateLimiter = new RateLimiter(options.getRequestsPerSecond());
+        this.pageWorkers = new FairExecutor("page-worker", options.getPageParallelism());
+        this.blockWorkers = new FairExecutor("block-fetcher", options.getFetchConcurrency());
+    }
+
+    /**
+     * 读取配置文件中的数据源，检查必填项，名称和输出目录不能重复
+     */
+    public static List<SyncSource> loadSources(Path configFile) throws IOException {
+        JSONObject config = JSON.parseObject(Files.readString(configFile));
+        List<SyncSource> sources = config == null ? null : config.getList("sources", SyncSource.class);
+        if (sources == null || sources.isEmpty()) {
+            throw new IllegalArgumentException("配置文件中没有数据源: " + configFile);
+        }
+        Set<String> names = new HashSet<>();
+        Set<Path> outputDirs = new HashSet<>();
+        for (SyncSource source : sources) {
+            if (isEmpty(source.getName()) || isEmpty(source.getDatabaseId()) || isEmpty(source.getOutputDir())) {
+                throw new IllegalArgumentException("数据源必须设置 name、databaseId 和 outputDir: " + JSON.toJSONString(source));
+            }
+            if (!names.add(source.getName())) {
+                throw new IllegalArgumentException("数据源名称重复: " + source.getName());
+            }
+            if (!outputDirs.add(Paths.get(source.getOutputDir()).toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("数据源的输出目录重复: " + source.getOutputDir());
+            }
+            source.setDatabaseId(resolveEnv(source.getDatabaseId()));
+        }
+        return sources;
+    }
+
+    /**
+     * 把 ${NAME} 形式的值替换为环境变量
+     */
+    private static String resolveEnv(String value) {
+        Matcher matcher = ENV_REFERENCE.matcher(value);
+        if (!matcher.matches()) {
+            return value;
+        }
+        String env = System.getenv(matcher.group(1));
+        if (isEmpty(env)) {
+            throw new IllegalArgumentException("环境变量未设置: " + matcher.group(1));
+        }
+        return env;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * 创建使用共享资源的客户端，每个客户端在工作线程中有自己的任务队列
+     */
+    NotionClient newClient(String databaseId, int pageParallelism) {
+        return new NotionClient(transport, databaseId, rateLimiter, pageWorkers.newQueue(), blockWorkers.newQueue(), pageParallelism);
+    }
+
+    /**
+     * 并发同步所有数据库，一个数据库失败不影响其他数据库
+     *
+     * @return 是否全部成功
+     */
+    public boolean run() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService sourceExecutor = Executors.newFixedThreadPool(sources.size(), r -> {
+            Thread thread = new Thread(r, "source-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (SyncSource source : sources) {
+                NotionSync sync = options.withSource(source.getDatabaseId(), source.getOutputDir());
+                sync.setShared(this);
+                results.add(sourceExecutor.submit(() -> {
+                    Log.info("[%s] 开始同步到 %s", source.getName(), source.getOutputDir());
+                    boolean success = sync.run();
+                    Log.info("[%s] %s", source.getName(), success ? "同步完成" : "同步失败");
+                    return success;
+                }));
+            }
+
+            boolean success = true;
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    success &= results.get(i).get();
+                } catch (ExecutionException e) {
+                    Log.error("[" + sources.get(i).getName() + "] 同步失败: " + e.getCause().getMessage(), e.getCause());
+                    success = false;
+                }
+            }
+            Log.info("%d 个数据源同步结束，%s", sources.size(), success ? "全部成功" : "有数据源失败");
+            return success;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            sourceExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() {
+        pageWorkers.close();
+        blockWorkers.close();
+        transport.close();
+    }
+}
@@ -4,142 +4,304 @@ import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import nlob.entity.BlogPostDO;
+import nlob.entity.block.Block;
+import nlob.entity.NotionPage;
+import nlob.utils.Log;
 import nlob.utils.TimeUtil;
-import okhttp3.*;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.URI;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
-
-public class NotionClient {
-    public static final MediaType json = MediaType.parse("application/json; charset=utf-8");
-    private final String apiToken;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NotionClient implements AutoCloseable {
+    public static final int DEFAULT_FETCH_CONCURRENCY = 4;
+    public static final int DEFAULT_PAGE_PARALLELISM = 4;
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_RETRIES = 5;
+    private static final long BASE_BACKOFF_MILLIS = 500;
     private final String databaseId;
-    private final OkHttpClient httpClient;
-
-    private static final String NOTION_API_BASE = "https://api.notion.com/v1";
+    private final NotionTransport transport;
+    private final RateLimiter rateLimiter;
+    private BlockCache blockCache;
+    private Metrics metrics = new Metrics();
+    private String maxProcessedEditTime;
+    private String earliestFailedEditTime;
+    private final BlockTreeFetcher blockTreeFetcher;
+    private final Executor pageExecutor;
+    private final ExecutorService prefetchExecutor;
+    private final int pageParallelism;
+    /** 传输层和页面线程池是否由客户端创建，共享时关闭客户端不关闭它们 */
+    private final boolean ownsResources;
 
     public NotionClient(String apiToken, String databaseId) {
-        this.apiToken = apiToken;
+        this(apiToken, databaseId, DEFAULT_FETCH_CONCURRENCY, DEFAULT_PAGE_PARALLELISM);
+    }
+
+    /**
+     * @param fetchConcurrency 获取块树时同时在途的子块请求上限
+     * @param pageParallelism  同时解析（获取内容并转换Markdown）的页面数
+     */
+    public NotionClient(String apiToken, String databaseId, int fetchConcurrency, int pageParallelism) {
+        this(new LiveTransport(apiToken), databaseId, fetchConcurrency, pageParallelism);
+    }
+
+    public NotionClient(NotionTransport transport, String databaseId, int fetchConcurrency, int pageParallelism) {
+        this(transport, databaseId, fetchConcurrency, pageParallelism, RateLimiter.NOTION_REQUESTS_PER_SECOND);
+    }
+
+    /**
+     * @param transport         发送请求的传输层，关闭客户端时一并关闭
+     * @param requestsPerSecond 限流器的速率上限，访问本地模拟服务或回放时可以调高
+     */
+    public NotionClient(NotionTransport transport, String databaseId, int fetchConcurrency, int pageParallelism,
+                        double requestsPerSecond) {
+        if (pageParallelism < 1) {
+            throw new IllegalArgumentException("页面并行度必须大于0: " + pageParallelism);
+        }
+        this.transport = transport;
         this.databaseId = databaseId;
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .retryOnConnectionFailure(true) // 自动重试连接失败
-                .build();
+        this.pageParallelism = pageParallelism;
+        this.rateLimiter = new RateLimiter(requestsPerSecond);
+        this.blockTreeFetcher = new BlockTreeFetcher(this::fetchBlockChildrenCached, fetchConcurrency);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.pageExecutor = Executors.newFixedThreadPool(pageParallelism, r -> {
+            Thread thread = new Thread(r, "page-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.prefetchExecutor = newPrefetchExecutor();
+        this.ownsResources = true;
+    }
+
+    /**
+     * 多个数据库共享传输层（连接池）、限流器和工作线程时使用，关闭客户端不会关闭共享的资源
+     *
+     * @param pageExecutor    解析页面的线程池
+     * @param blockExecutor   获取子块的线程池，页面任务会等待子块任务，两者不能是同一个线程池
+     * @param pageParallelism 本数据库同时在途的页面数
+     */
+    public NotionClient(NotionTransport transport, String databaseId, RateLimiter rateLimiter,
+                        Executor pageExecutor, Executor blockExecutor, int pageParallelism) {
+        if (pageParallelism < 1) {
+            throw new IllegalArgumentException("页面并行度必须大于0: " + pageParallelism);
+        }
+        this.transport = transport;
+        this.databaseId = databaseId;
+        this.pageParallelism = pageParallelism;
+        this.rateLimiter = rateLimiter;
+        this.blockTreeFetcher = new BlockTreeFetcher(this::fetchBlockChildrenCached, blockExecutor);
+        this.pageExecutor = pageExecutor;
+        this.prefetchExecutor = newPrefetchExecutor();
+        this.ownsResources = false;
+    }
+
+    /**
+     * 分页预取：每个迭代器最多一个在途请求，线程按需创建
+     */
+    private static ExecutorService newPrefetchExecutor() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "page-prefetch-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
      * 查询Notion数据库获取所有博客文章
+     *
+     * @param editedSince 只获取该UTC时间及之后编辑过的页面，为null时获取全部页面
      */
-    public List<BlogPostDO> fetchBlogPosts() throws Exception {
-        System.out.println("开始从Notion获取博客文章...");
-        System.out.println("Database ID: " + databaseId);
-
-        //构建查询条件
-        String timeString = TimeUtil.getUTCBeforeDays(10);
-        String filterCondition = String.format("""
-                {
-                    "filter": {
-                        "timestamp": "last_edited_time",
-                        "last_edited_time": {
-                            "on_or_after": "%s"
-                        }
+    public List<BlogPostDO> fetchBlogPosts(String editedSince) throws Exception {
+        // 常驻模式下客户端会重复使用，水位线只统计本次获取的页面
+        synchronized (this) {
+            maxProcessedEditTime = null;
+            earliestFailedEditTime = null;
+        }
+        Log.info("开始从Notion获取博客文章...");
+        Log.info("Database ID: " + databaseId);
+
+        //构建查询条件，按编辑时间升序，水位线可以随处理进度单调推进
+        String filterCondition;
+        if (editedSince != null) {
+            filterCondition = String.format("""
+                    {
+                        "filter": {
+                            "timestamp": "last_edited_time",
+                            "last_edited_time": {
+                                "on_or_after": "%s"
+                            }
+                        },
+                        "sorts": [{"timestamp": "last_edited_time", "direction": "ascending"}]
                     }
-                }
-                """, timeString);
-        Request request = new Request.Builder()
-                .url(NOTION_API_BASE + "/databases/" + databaseId + "/query")
-                .header("Authorization", "Bearer " + apiToken)
-                .header("Notion-Version", "2022-06-28")
-                .header("Content-Type", "application/json")
-                .post(RequestBody.create(filterCondition, MediaType.parse("application/json; charset=utf-8")))
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute();) {
-            System.out.println("API响应状态: " + response.code());
-            if (response.code() != 200) {
-                System.err.println("API响应内容: " + response.body());
-                throw new RuntimeException("Notion API请求失败: " + response.code() + " - " + response.body());
-            }
-            if (!response.isSuccessful()) {
-                System.out.println("请求失败，响应头: " + response.headers());
+                    """, editedSince);
+        } else {
+            filterCondition = """
+                    {
+                        "sorts": [{"timestamp": "last_edited_time", "direction": "ascending"}]
+                    }
+                    """;
+        }
+
+        // 逐页流式读取查询结果，每个页面交给工作线程解析；
+        // 在途任务数受限，避免查询结果堆积在内存中
+        Semaphore inFlight = new Semaphore(pageParallelism * 2);
+        List<CompletableFuture<BlogPostDO>> futures = new ArrayList<>();
+        CursorPaginator<NotionPage> pages = new CursorPaginator<>(
+                cursor -> queryDatabasePage(filterCondition, cursor, PAGE_SIZE), prefetchExecutor);
+        while (pages.hasNext()) {
+            NotionPage page = pages.next();
+            inFlight.acquire();
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return parsePage(page);
+                    } finally {
+                        inFlight.release();
+                    }
+                }, pageExecutor));
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                throw e;
             }
-            String responseBody = response.body().string();
-            JSONObject root = JSON.parseObject(responseBody);
-            JSONArray results = root.getJSONArray("results");
-
-            List<BlogPostDO> posts = new ArrayList<>();
-            for (int i = 0; i < results.size(); i++) {
-                JSONObject page = results.getJSONObject(i);
-                BlogPostDO post = parsePage(page);
-                if (post != null) {
-                    posts.add(post);
-                }
+        }
+
+        // 按查询结果的顺序收集，保证输出确定
+        List<BlogPostDO> posts = new ArrayList<>();
+        for (CompletableFuture<BlogPostDO> future : futures) {
+            BlogPostDO post = future.get();
+            if (post != null) {
+                posts.add(post);
             }
+        }
 
-            System.out.printf("成功获取,从 %s 到现在，共有%d篇文章", timeString, posts.size());
-            return posts;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        Log.info("成功获取,从 %s 到现在，共有%d篇文章", editedSince != null ? editedSince : "最早", posts.size());
+        return posts;
+    }
+
+    /**
+     * 查询最近编辑的一个页面的编辑时间，只请求一条结果，常驻模式用它判断数据库是否有变化
+     *
+     * @param editedSince 只查询该UTC时间及之后编辑的页面，为null时查询全部页面
+     * @return UTC编辑时间，没有符合条件的页面时为null
+     */
+    public String fetchLatestEditTime(String editedSince) throws Exception {
+        JSONObject body = JSONObject.of("sorts", JSONArray.of(JSONObject.of("timestamp", "last_edited_time", "direction", "descending")));
+        if (editedSince != null) {
+            body.put("filter", JSONObject.of("timestamp", "last_edited_time",
+                    "last_edited_time", JSONObject.of("on_or_after", editedSince)));
+        }
+        List<NotionPage> pages = queryDatabasePage(body.toJSONString(), null, 1).results();
+        return pages.isEmpty() ? null : pages.get(0).getLastEditedTime();
+    }
+
+    /**
+     * 查询数据库的一页结果
+     */
+    private CursorPaginator.CursorPage<NotionPage> queryDatabasePage(String filterCondition, String cursor, int pageSize) throws Exception {
+        JSONObject body = JSON.parseObject(filterCondition);
+        body.put("page_size", pageSize);
+        if (cursor != null) {
+            body.put("start_cursor", cursor);
+        }
+        try (NotionTransport.Response response = execute("POST", "/databases/" + databaseId + "/query", body.toJSONString())) {
+            Log.debug("API响应状态: %d", response.code());
+            if (response.code() != 200) {
+                String content = response.bodyString();
+                Log.error("API响应内容: " + content);
+                throw new RuntimeException("Notion API请求失败: " + response.code() + " - " + content);
+            }
+            return NotionDecoder.decodePageList(response.body());
         }
     }
 
     /**
      * 解析Notion页面数据
      */
-    private BlogPostDO parsePage(JSONObject page) {
+    private BlogPostDO parsePage(NotionPage page) {
+        String lastEditedTime = page.getLastEditedTime();
         try {
             BlogPostDO post = new BlogPostDO();
 
             // 设置基本属性
-            post.setId(page.getString("id"));
-            post.setCreatedTime(TimeUtil.parseUTCDateTime2Beijing(page.getString("created_time")));
-            post.setLastEditedTime(TimeUtil.parseUTCDateTime2Beijing(page.getString("last_edited_time")));
+            post.setId(page.getId());
+            post.setCreatedTime(TimeUtil.parseUTCDateTime2Beijing(page.getCreatedTime()));
+            post.setLastEditedTime(TimeUtil.parseUTCDateTime2Beijing(lastEditedTime));
 
             // 解析属性
-            JSONObject properties = page.getJSONObject("properties");
+            JSONObject properties = page.getProperties();
 
-            System.out.println("=== 解析页面: " + page.getString("id") + " ===");
-            System.out.println("可用属性: " + properties.keySet());
+            Log.debug("=== 解析页面: %s ===", page.getId());
+            Log.debug("可用属性: %s", properties.keySet());
 
             // 提取标题 - 直接使用"名称"属性
             String title = extractTitle(properties);
             if (title == null || title.trim().isEmpty()) {
-                System.out.println("跳过无标题页面");
+                Log.info("跳过无标题页面: " + page.getId());
+                markProcessed(lastEditedTime);
                 return null;
             }
             post.setTitle(title);
-            System.out.println("文章标题: " + title);
+            Log.debug("文章标题: %s", title);
 
             // 提取标签 - 使用"多选"属性
             List<String> tags = extractTags(properties);
             post.setTags(tags);
-            System.out.println("文章标签: " + tags);
+            Log.debug("文章标签: %s", tags);
 
             // 获取页面内容
-            String content = fetchPageContent(post.getId());
-            post.setContent(content);
-            System.out.println("内容长度: " + (content != null ? content.length() : 0));
-            System.out.println("=== 页面解析完成 ===\n");
+            post.setBlocks(fetchPageBlocks(post.getId(), lastEditedTime));
+            Log.debug("=== 页面解析完成 ===");
 
+            markProcessed(lastEditedTime);
             return post;
 
         } catch (Exception e) {
-            System.err.println("解析页面失败: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("解析页面失败: " + page.getId() + " - " + e.getMessage(), e);
+            markFailed(lastEditedTime);
             return null;
         }
     }
 
+    private synchronized void markProcessed(String lastEditedTime) {
+        if (lastEditedTime != null && (maxProcessedEditTime == null || lastEditedTime.compareTo(maxProcessedEditTime) > 0)) {
+            maxProcessedEditTime = lastEditedTime;
+        }
+    }
+
+    private synchronized void markFailed(String lastEditedTime) {
+        if (lastEditedTime != null && (earliestFailedEditTime == null || lastEditedTime.compareTo(earliestFailedEditTime) < 0)) {
+            earliestFailedEditTime = lastEditedTime;
+        }
+    }
+
+    /**
+     * 本次同步可安全推进到的水位线：已处理页面的最大编辑时间。
+     * 有页面处理失败时不超过最早失败页面的编辑时间，保证下次会重试它
+     */
+    public synchronized String getProcessedWatermark() {
+        if (earliestFailedEditTime != null && (maxProcessedEditTime == null || earliestFailedEditTime.compareTo(maxProcessedEditTime) < 0)) {
+            return earliestFailedEditTime;
+        }
+        return maxProcessedEditTime;
+    }
+
     /**
      * 提取标题 - 直接使用"名称"属性
      */
-    private String extractTitle(JSONObject properties) {
+    static String extractTitle(JSONObject properties) {
         // 优先使用"名称"属性
         String[] titlePropertyNames = {"名称", "Name", "Title", "标题", "name", "title"};
 
@@ -161,14 +323,14 @@ public class NotionClient {
             }
         }
 
-        System.out.println("未找到有效的标题属性");
+        Log.debug("未找到有效的标题属性");
         return null;
     }
 
     /**
      * 提取标签 - 直接使用"多选"属性
      */
-    private List<String> extractTags(JSONObject properties) {
+    static List<String> extractTags(JSONObject properties) {
         List<String> tags = new ArrayList<>();
 
         // 优先使用"多选"属性
@@ -200,90 +362,260 @@ public class NotionClient {
     /**
      * 递归获取页面所有块内容（包括所有嵌套子块）
      */
-    private String fetchPageContent(String pageId) throws Exception {
-        System.out.println("开始递归获取页面内容: " + pageId);
+    private List<Block> fetchPageBlocks(String pageId, String lastEditedTime) throws Exception {
+        Log.debug("开始递归获取页面内容: %s", pageId);
 
-        JSONArray allBlocks = new JSONArray();
-        fetchBlocksRecursive(pageId, allBlocks, 0);
+        List<Block> allBlocks = blockTreeFetcher.fetch(pageId, lastEditedTime);
 
-        System.out.println("共获取 " + allBlocks.size() + " 个块（包含嵌套块）");
+        int blocks = countBlocks(allBlocks);
+        metrics.recordPageBlocks(blocks);
+        Log.debug("共获取 %d 个块（包含嵌套块）", blocks);
+        return allBlocks;
+    }
 
-        MarkdownConverter converter = new MarkdownConverter();
-        return converter.convertBlocksToMarkdown(allBlocks);
+    private static int countBlocks(List<Block> blocks) {
+        int count = blocks.size();
+        for (Block block : blocks) {
+            count += countBlocks(block.getChildren());
+        }
+        return count;
     }
 
     /**
-     * 递归获取块及其所有子块
+     * 获取子块，父块和页面的时间戳都未变化时使用缓存
      */
-    private void fetchBlocksRecursive(String blockId, JSONArray resultBlocks, int depth) throws Exception {
-        if (depth > 10) { // 防止无限递归
-            System.out.println("警告：达到最大递归深度: " + blockId);
-            return;
+    private List<Block> fetchBlockChildrenCached(String blockId, String lastEditedTime, String pageLastEditedTime) {
+        if (blockCache == null) {
+            return fetchBlockChildren(blockId);
         }
+        List<Block> cached = blockCache.get(blockId, lastEditedTime, pageLastEditedTime);
+        if (cached != null) {
+            return cached;
+        }
+        List<Block> children = fetchBlockChildren(blockId);
+        blockCache.put(blockId, lastEditedTime, pageLastEditedTime, children);
+        return children;
+    }
 
-        JSONArray children = fetchBlockChildren(blockId);
+    /**
+     * 获取指定块的所有子块（自动翻页）
+     */
+    private List<Block> fetchBlockChildren(String blockId) {
+        List<Block> children = new ArrayList<>();
+        new CursorPaginator<Block>(cursor -> fetchBlockChildrenPage(blockId, cursor), prefetchExecutor)
+                .forEachRemaining(children::add);
+        return children;
+    }
 
-        for (int i = 0; i < children.size(); i++) {
-            JSONObject block = children.getJSONObject(i);
+    /**
+     * 获取指定块的一页子块
+     */
+    private CursorPaginator.CursorPage<Block> fetchBlockChildrenPage(String blockId, String cursor) {
+        String path = "/blocks/" + blockId + "/children?page_size=" + PAGE_SIZE;
+        if (cursor != null) {
+            // 游标由服务端生成，可能含有需要转义的字符
+            path += "&start_cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+        }
+        try (NotionTransport.Response response = execute("GET", path, null)) {
+            if (response.code() != 200) {
+                // 不能返回空结果，否则内容会被静默丢失
+                throw new RuntimeException("获取块内容失败: " + blockId + " - " + response.code() + " - " + response.bodyString());
+            }
+            return NotionDecoder.decodeBlockList(response.body());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            // 标记块的层级信息（用于调试和格式化）
-            block.put("_depth", depth);
-            block.put("_parent_id", blockId);
+    /**
+     * 经过限流器发送请求，429、5xx和网络错误按带抖动的指数退避重试。
+     * 每次尝试的耗时（到收到响应头为止）和状态码计入指标，响应体的字节数在读取时计入。
+     * 返回的响应由调用方负责关闭
+     */
+    private NotionTransport.Response execute(String method, String path, String body) throws IOException {
+        String endpoint = path.startsWith("/blocks/") ? "blocks.children" : path.startsWith("/databases/") ? "databases.query" : "other";
+        SyncEvents.ApiCall event = new SyncEvents.ApiCall();
+        event.begin();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                rateLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待限流令牌时被中断");
+            }
 
-            resultBlocks.add(block);
+            NotionTransport.Response response;
+            long start = System.nanoTime();
+            try {
+                response = transport.send(method, path, body);
+            } catch (IOException e) {
+                metrics.recordRequest(endpoint, 0, System.nanoTime() - start);
+                if (attempt >= MAX_RETRIES) {
+                    commitApiCall(event, endpoint, path, 0, attempt, 0);
+                    throw e;
+                }
+                long delay = backoffMillis(attempt);
+                Log.warn("请求异常，" + delay + "ms后重试: " + path + " - " + e.getMessage());
+                sleep(delay);
+                continue;
+            }
 
-            // 检查是否需要获取子块
-            if (shouldFetchChildren(block)) {
-                String childBlockId = block.getString("id");
-                String blockType = block.getString("type");
-                System.out.println("深度 " + depth + " - 获取 " + blockType + " 块的子块: " + childBlockId);
-                fetchBlocksRecursive(childBlockId, resultBlocks, depth + 1);
+            int code = response.code();
+            metrics.recordRequest(endpoint, code, System.nanoTime() - start);
+            if (code == 429) {
+                long retryAfter = parseRetryAfter(response.retryAfter(), attempt);
+                response.close();
+                // 限流器暂停发放令牌，所有线程都会等到Retry-After之后
+                rateLimiter.onThrottled(retryAfter);
+                if (attempt >= MAX_RETRIES) {
+                    commitApiCall(event, endpoint, path, code, attempt, 0);
+                    throw new IOException("Notion API持续限流，已重试" + MAX_RETRIES + "次: " + path);
+                }
+                Log.warn("触发限流(429)，%dms后重试，当前速率 %.2f 请求/秒，排队 %d",
+                        retryAfter, rateLimiter.getCurrentRate(), rateLimiter.getQueueDepth());
+                continue;
             }
+            if (code >= 500 && attempt < MAX_RETRIES) {
+                response.close();
+                long delay = backoffMillis(attempt);
+                Log.warn("服务端错误 " + code + "，" + delay + "ms后重试: " + path);
+                sleep(delay);
+                continue;
+            }
+            if (code >= 200 && code < 300) {
+                rateLimiter.onSuccess();
+            }
+            InputStream responseBody = metrics.countBytes(response.body());
+            if (event.isEnabled()) {
+                responseBody = new ApiCallStream(responseBody, event, endpoint, path, code, attempt);
+            }
+            return new NotionTransport.Response(code, response.retryAfter(), responseBody);
+        }
+    }
+
+    private static void commitApiCall(SyncEvents.ApiCall event, String endpoint, String path, int status, int retries, long bytes) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.endpoint = endpoint;
+        event.path = path;
+        if (path.startsWith("/blocks/")) {
+            int end = path.indexOf('/', "/blocks/".length());
+            event.blockId = path.substring("/blocks/".length(), end > 0 ? end : path.length());
         }
+        event.status = status;
+        event.retries = retries;
+        event.bytes = bytes;
+        event.commit();
     }
 
     /**
-     * 判断是否需要获取子块
+     * 记录响应体的字节数，关闭时提交API调用事件，事件时长包括读取和解码响应体
      */
-    private boolean shouldFetchChildren(JSONObject block) {
-        boolean hasChildren = block.getBoolean("has_children");
-        String type = block.getString("type");
-
-        // 这些类型的块通常有子内容
-        return hasChildren && (
-                "toggle".equals(type) ||
-                        "column_list".equals(type) ||
-                        "column".equals(type) ||
-                        "table".equals(type) ||
-                        "bulleted_list_item".equals(type) ||
-                        "numbered_list_item".equals(type) ||
-                        "to_do".equals(type) ||
-                        "quote".equals(type) ||
-                        "callout".equals(type) ||
-                        "child_page".equals(type)  // 注意：child_page 需要特殊处理
-        );
+    private static final class ApiCallStream extends FilterInputStream {
+        private final SyncEvents.ApiCall event;
+        private final String endpoint;
+        private final String path;
+        private final int status;
+        private final int retries;
+        private long bytes;
+        private boolean closed;
+
+        ApiCallStream(InputStream in, SyncEvents.ApiCall event, String endpoint, String path, int status, int retries) {
+            super(in);
+            this.event = event;
+            this.endpoint = endpoint;
+            this.path = path;
+            this.status = status;
+            this.retries = retries;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                bytes += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            if (!closed) {
+                closed = true;
+                commitApiCall(event, endpoint, path, status, retries, bytes);
+            }
+        }
     }
 
     /**
-     * 获取指定块的子块
+     * 解析Retry-After（秒），缺失或无法解析时使用退避时间
      */
-    private JSONArray fetchBlockChildren(String blockId) throws Exception {
-        String url = NOTION_API_BASE + "/blocks/" + blockId + "/children?page_size=100";
-        Request request = new Request.Builder()
-                .url(url)
-                .header("Authorization", "Bearer " + apiToken)
-                .header("Notion-Version", "2022-06-28")
-                .get()
-                .build();
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (response.code() != 200) {
-                System.err.println("获取块内容失败: " + response.code() + " - " + response.body());
-                return new JSONArray();
+    private static long parseRetryAfter(String retryAfter, int attempt) {
+        if (retryAfter != null) {
+            try {
+                return (long) (Double.parseDouble(retryAfter.trim()) * 1000);
+            } catch (NumberFormatException ignored) {
             }
-            JSONObject root = JSON.parseObject(response.body().string());
-            return root.getJSONArray("results");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        }
+        return backoffMillis(attempt);
+    }
+
+    /**
+     * 指数退避，取 [d/2, d] 之间的随机值，避免多个线程同时重试
+     */
+    private static long backoffMillis(int attempt) {
+        long delay = BASE_BACKOFF_MILLIS << Math.min(attempt, 6);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("重试等待时被中断");
+        }
+    }
+
+    /**
+     * 设置子块缓存，为null时不使用缓存
+     */
+    public void setBlockCache(BlockCache blockCache) {
+        this.blockCache = blockCache;
+    }
+
+    /**
+     * 设置记录请求指标的收集器
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 共享的限流器，可用于查看当前速率和排队深度
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    @Override
+    public void close() {
+        prefetchExecutor.shutdownNow();
+        blockTreeFetcher.close();
+        if (ownsResources) {
+            ((ExecutorService) pageExecutor).shutdownNow();
+            transport.close();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSONReader;
+import nlob.entity.NotionPage;
+import nlob.entity.block.Block;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 直接从响应字节流解码Notion接口返回的列表，跳过不需要的字段，
+ * 不再先生成完整的String和JSONObject树
+ */
+public final class NotionDecoder {
+
+    private NotionDecoder() {
+    }
+
+    /**
+     * 解码 /blocks/{id}/children 的一页结果
+     */
+    public static CursorPaginator.CursorPage<Block> decodeBlockList(InputStream in) {
+        try (JSONReader reader = JSONReader.of(in, StandardCharsets.UTF_8)) {
+            return decodeList(reader, BlockCodec::decode);
+        }
+    }
+
+    /**
+     * 解码 /databases/{id}/query 的一页结果
+     */
+    public static CursorPaginator.CursorPage<NotionPage> decodePageList(InputStream in) {
+        try (JSONReader reader = JSONReader.of(in, StandardCharsets.UTF_8)) {
+            return decodeList(reader, NotionDecoder::decodePage);
+        }
+    }
+
+    private interface ItemDecoder<T> {
+        T decode(JSONReader reader);
+    }
+
+    private static <T> CursorPaginator.CursorPage<T> decodeList(JSONReader reader, ItemDecoder<T> itemDecoder) {
+        List<T> results = new ArrayList<>();
+        String nextCursor = null;
+        boolean hasMore = false;
+
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            String name = reader.readFieldName();
+            switch (name) {
+                case "results":
+                    reader.nextIfArrayStart();
+                    while (!reader.nextIfArrayEnd()) {
+                        results.add(itemDecoder.decode(reader));
+                    }
+                    reader.nextIfComma();
+                    break;
+                case "next_cursor":
+                    nextCursor = reader.nextIfNull() ? null : reader.readString();
+                    break;
+                case "has_more":
+                    hasMore = reader.readBoolValue();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.nextIfComma();
+        return new CursorPaginator.CursorPage<>(results, hasMore ? nextCursor : null);
+    }
+
+    /**
+     * 解码单个页面，只保留id、时间和属性
+     */
+    public static NotionPage decodePage(JSONReader reader) {
+        NotionPage page = new NotionPage();
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            String name = reader.readFieldName();
+            switch (name) {
+                case "id":
+                    page.setId(reader.readString());
+                    break;
+                case "created_time":
+                    page.setCreatedTime(reader.readString());
+                    break;
+                case "last_edited_time":
+                    page.setLastEditedTime(reader.readString());
+                    break;
+                case "properties":
+                    page.setProperties(reader.readJSONObject());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.nextIfComma();
+        return page;
+    }
+}
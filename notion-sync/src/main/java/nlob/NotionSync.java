@@ -1,20 +1,63 @@
 package nlob;
 
 import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
 import com.alibaba.fastjson2.JSONWriter;
 import nlob.entity.BlogPostDO;
+import nlob.entity.IndexEntry;
+import nlob.entity.SyncSource;
+import nlob.entity.block.Block;
+import nlob.utils.Log;
+import nlob.utils.TimeUtil;
 
-import java.lang.reflect.Type;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
-public class NotionSync {
+public class NotionSync implements AutoCloseable {
     private final String apiToken;
     private final String databaseId;
     private final String outputDir;
+    private int fetchConcurrency = NotionClient.DEFAULT_FETCH_CONCURRENCY;
+    private int pageParallelism = NotionClient.DEFAULT_PAGE_PARALLELISM;
+    private boolean useBlockCache = true;
+    private boolean fullSync = false;
+    private boolean localizeImages = true;
+    private String apiBase = LiveTransport.DEFAULT_API_BASE;
+    private Path recordDir;
+    private Path replayDir;
+    private long replayLatencyMillis = 0;
+    private double replayThrottleRate = 0;
+    private double requestsPerSecond = RateLimiter.NOTION_REQUESTS_PER_SECOND;
+    private Path jfrFile;
+    private MultiSourceSync shared;
+    private boolean keepWarm = false;
+    /** 常驻模式下保留的客户端，连接池和线程在多次同步之间复用 */
+    private NotionClient warmClient;
+    /** 常驻模式下上次成功同步后保留的状态，同步失败时丢弃，下次从磁盘重新加载 */
+    private LoadedState warm;
+    private volatile Metrics lastMetrics;
+
+    /** 查询时水位线向前回退的分钟数，覆盖Notion时间戳的延迟更新 */
+    private static final int WATERMARK_OVERLAP_MINUTES = 5;
+
+    /** 没有设置摘要时，从正文开头截取的字符数 */
+    private static final int EXCERPT_LENGTH = 50;
+
+    /** 标题中的词在搜索索引中计入的次数 */
+    private static final int TITLE_WEIGHT = 5;
 
     private static final DateTimeFormatter DATE_FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -25,120 +68,612 @@ public class NotionSync {
         this.outputDir = outputDir;
     }
 
-    public void sync() {
+    /**
+     * 设置获取块树时的并发请求上限
+     */
+    public void setFetchConcurrency(int fetchConcurrency) {
+        this.fetchConcurrency = fetchConcurrency;
+    }
+
+    /**
+     * 设置同时处理的页面数
+     */
+    public void setPageParallelism(int pageParallelism) {
+        this.pageParallelism = pageParallelism;
+    }
+
+    /**
+     * 是否忽略水位线，从头全量同步
+     */
+    public void setFullSync(boolean fullSync) {
+        this.fullSync = fullSync;
+    }
+
+    /**
+     * 是否使用本地子块缓存
+     */
+    public void setUseBlockCache(boolean useBlockCache) {
+        this.useBlockCache = useBlockCache;
+    }
+
+    /**
+     * 是否把图片下载到本地，关闭时保留Notion的原链接
+     */
+    public void setLocalizeImages(boolean localizeImages) {
+        this.localizeImages = localizeImages;
+    }
+
+    /**
+     * 设置Notion API根地址，例如指向本地的模拟服务
+     */
+    public void setApiBase(String apiBase) {
+        this.apiBase = apiBase;
+    }
+
+    /**
+     * 把请求和响应录制到目录中，为null时不录制
+     */
+    public void setRecordDir(Path recordDir) {
+        this.recordDir = recordDir;
+    }
+
+    /**
+     * 从录制目录回放响应，不访问网络，为null时访问Notion API
+     */
+    public void setReplayDir(Path replayDir) {
+        this.replayDir = replayDir;
+    }
+
+    /**
+     * 回放时每个请求注入的延迟（毫秒）
+     */
+    public void setReplayLatencyMillis(long replayLatencyMillis) {
+        this.replayLatencyMillis = replayLatencyMillis;
+    }
+
+    /**
+     * 回放时返回429的比例
+     */
+    public void setReplayThrottleRate(double replayThrottleRate) {
+        this.replayThrottleRate = replayThrottleRate;
+    }
+
+    /**
+     * 设置每秒请求数上限，默认为Notion允许的速率
+     */
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * 同步期间录制JFR到文件，包括 {@link SyncEvents} 中的自定义事件，为null时不录制
+     */
+    public void setJfrFile(Path jfrFile) {
+        this.jfrFile = jfrFile;
+    }
+
+    /**
+     * 根据选项创建传输层：回放、录制或直接访问Notion API
+     */
+    NotionTransport createTransport() throws IOException {
+        if (replayDir != null) {
+            Log.info("从录制目录回放: " + replayDir);
+            return new ReplayTransport(replayDir, replayLatencyMillis, replayThrottleRate, 1, 0);
+        }
+        NotionTransport transport = new LiveTransport(apiBase, apiToken, LiveTransport.defaultHttpClient());
+        if (recordDir != null) {
+            Log.info("录制请求到: " + recordDir);
+            transport = new RecordingTransport(transport, recordDir);
+        }
+        return transport;
+    }
+
+    /**
+     * 多数据库同步时使用共享的连接、限流器和工作线程，为null时单独创建
+     */
+    void setShared(MultiSourceSync shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * 复制当前的选项，用于同步另一个数据库
+     */
+    NotionSync withSource(String databaseId, String outputDir) {
+        NotionSync sync = new NotionSync(apiToken, databaseId, outputDir);
+        sync.fetchConcurrency = fetchConcurrency;
+        sync.pageParallelism = pageParallelism;
+        sync.useBlockCache = useBlockCache;
+        sync.fullSync = fullSync;
+        sync.localizeImages = localizeImages;
+        sync.apiBase = apiBase;
+        sync.recordDir = recordDir;
+        sync.replayDir = replayDir;
+        sync.replayLatencyMillis = replayLatencyMillis;
+        sync.replayThrottleRate = replayThrottleRate;
+        sync.requestsPerSecond = requestsPerSecond;
+        return sync;
+    }
+
+    int getFetchConcurrency() {
+        return fetchConcurrency;
+    }
+
+    int getPageParallelism() {
+        return pageParallelism;
+    }
+
+    double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    Path getJfrFile() {
+        return jfrFile;
+    }
+
+    /**
+     * 常驻模式：多次同步之间保留客户端、块缓存、输出清单、水位线和索引，不再每次从磁盘加载
+     */
+    public void setKeepWarm(boolean keepWarm) {
+        this.keepWarm = keepWarm;
+    }
+
+    /**
+     * 最近一次同步的运行指标，还没有同步时为null
+     */
+    public Metrics getLastMetrics() {
+        return lastMetrics;
+    }
+
+    /**
+     * 当前水位线，常驻模式下还没有成功同步时为null
+     */
+    public String getWatermark() {
+        LoadedState state = warm;
+        return state != null ? state.syncState.getWatermark() : null;
+    }
+
+    /**
+     * 常驻模式下检查数据库自上次成功同步后是否有页面被编辑，只请求一条查询结果。
+     * Notion的编辑时间只精确到分钟，最新的编辑时间等于水位线且在最近两分钟内时也视为有变化，
+     * 避免漏掉与上次同步同一分钟内的编辑
+     *
+     * @param pollMetrics 记录轮询请求的指标，不计入同步的运行报告
+     */
+    public boolean hasChanges(Metrics pollMetrics) throws Exception {
+        LoadedState state = warm;
+        if (state == null || state.syncState.getWatermark() == null) {
+            return true;
+        }
+        NotionClient client = warmClient();
+        client.setMetrics(pollMetrics);
+        String watermark = state.syncState.getWatermark();
+        String latest = client.fetchLatestEditTime(watermark);
+        if (latest == null) {
+            return false;
+        }
+        Instant latestTime = Instant.parse(latest);
+        return latestTime.isAfter(Instant.parse(watermark))
+                || latestTime.isAfter(Instant.now().minus(Duration.ofMinutes(2)));
+    }
+
+    private NotionClient warmClient() throws IOException {
+        if (warmClient == null) {
+            warmClient = createClient();
+        }
+        return warmClient;
+    }
+
+    private NotionClient createClient() throws IOException {
+        if (shared != null) {
+            return shared.newClient(databaseId, pageParallelism);
+        }
+        return new NotionClient(createTransport(), databaseId, fetchConcurrency, pageParallelism, requestsPerSecond);
+    }
+
+    /**
+     * 同步一次，设置了 --jfr 时录制JFR
+     *
+     * @return 是否成功
+     */
+    public boolean sync() {
+        return runRecorded(jfrFile, this::run);
+    }
+
+    /**
+     * 执行同步任务，jfrFile不为null时在任务期间录制JFR
+     *
+     * @return 任务是否成功
+     */
+    static boolean runRecorded(Path jfrFile, BooleanSupplier task) {
+        Recording recording = null;
+        if (jfrFile != null) {
+            try {
+                recording = SyncEvents.startRecording(jfrFile);
+            } catch (Exception e) {
+                Log.error("无法开始JFR录制: " + e.getMessage(), e);
+                return false;
+            }
+        }
+        try {
+            return task.getAsBoolean();
+        } finally {
+            if (recording != null) {
+                // 停止时写出到目标文件
+                recording.stop();
+                recording.close();
+            }
+        }
+    }
+
+    /**
+     * 同步一次，失败时记录错误并写出运行报告
+     *
+     * @return 是否成功
+     */
+    public boolean run() {
+        Metrics metrics = new Metrics();
+        lastMetrics = metrics;
+        LoadedState state = warm;
+        warm = null;
         try {
             // 创建输出目录
             Path blogsDir = Paths.get(outputDir, "blogs");
             Files.createDirectories(blogsDir);
 
+            // 根据水位线确定查询范围
+            if (state == null) {
+                state = loadState();
+            } else {
+                // 复用的状态只统计本次同步
+                if (state.blockCache != null) {
+                    state.blockCache.resetCounters();
+                }
+                state.output.resetCounters();
+            }
+            SyncState syncState = state.syncState;
+            String editedSince = null;
+            if (fullSync) {
+                Log.info("全量同步，忽略水位线");
+            } else if (syncState.getWatermark() != null) {
+                editedSince = TimeUtil.minusMinutesUTC(syncState.getWatermark(), WATERMARK_OVERLAP_MINUTES);
+            }
+
             // 获取Notion数据
-            NotionClient client = new NotionClient(apiToken, databaseId);
-            List<BlogPostDO> posts = client.fetchBlogPosts();
-
-            // 生成索引和Markdown文件
-            List<Map<String, Object>> index = loadExistingIndex();
-            Map<String,Integer> idMap = new HashMap<>();
-            for(int i=0;i<index.size();i++) {
-                Map<String, Object> objectMap = index.get(i);
-                idMap.put(objectMap.get("id").toString(),i);
-            }
-            for (BlogPostDO post : posts) {
-                if (post.getTitle() != null) {
-                    // 生成Markdown文件
-                    String markdown = generateMarkdownFile(post);
-                    Path filePath = blogsDir.resolve(post.getFilename());
-                    Files.writeString(filePath, markdown);
-                    System.out.println("生成文件: " + post.getFilename());
-                    //移除已经存在的文章（更新）
-                    if (idMap.containsKey(post.getId())) {
-                        index.remove(idMap.get(post.getId()).intValue());
+            List<BlogPostDO> posts;
+            String processedWatermark;
+            BlockCache blockCache = state.blockCache;
+            NotionClient client = keepWarm ? warmClient() : createClient();
+            try {
+                client.setBlockCache(blockCache);
+                client.setMetrics(metrics);
+                posts = client.fetchBlogPosts(editedSince);
+                processedWatermark = client.getProcessedWatermark();
+            } finally {
+                if (!keepWarm) {
+                    client.close();
+                }
+            }
+            if (blockCache != null) {
+                Log.info("块缓存命中 " + blockCache.getHits() + " 次, 未命中 " + blockCache.getMisses() + " 次");
+                metrics.set("blockCache.hits", blockCache.getHits());
+                metrics.set("blockCache.misses", blockCache.getMisses());
+                long lookups = blockCache.getHits() + blockCache.getMisses();
+                metrics.set("blockCache.hitRate", lookups > 0 ? (double) blockCache.getHits() / lookups : 0.0);
+                blockCache.save();
+            }
+
+            // 下载图片并生成缩小版本，正文中改用本地路径
+            if (localizeImages) {
+                List<List<Block>> trees = new ArrayList<>();
+                for (BlogPostDO post : posts) {
+                    if (post.getBlocks() != null) {
+                        trees.add(post.getBlocks());
                     }
-                    // 添加到索引
-                    Map<String, Object> indexEntry = new LinkedHashMap<>();
-                    indexEntry.put("id", post.getId());
-                    indexEntry.put("filename", post.getFilename());
-                    indexEntry.put("title", post.getTitle());
-                    indexEntry.put("date", post.getCreatedTime().format(DATE_FORMATTER));
-                    indexEntry.put("update",post.getLastEditedTime().format(DATE_FORMATTER) );
-
-                    // 处理摘要
-                    String excerpt = post.getExcerpt();
-                    if (excerpt == null || excerpt.trim().isEmpty()) {
-                        if (post.getContent() != null && post.getContent().length() > 50) {
-                            excerpt = post.getContent().substring(0, 50) + "...";
-                        } else if (post.getContent() != null) {
-                            excerpt = post.getContent();
-                        } else {
-                            excerpt = "暂无摘要";
-                        }
+                }
+                try (ImageStore imageStore = new ImageStore(Paths.get(outputDir), Paths.get(outputDir, ".notion-sync", "images.json"),
+                        ImageStore.defaultHttpClient(), ImageStore.DEFAULT_PARALLELISM)) {
+                    imageStore.localize(trees);
+                    imageStore.save();
+                    metrics.set("images.downloaded", imageStore.getDownloaded());
+                    metrics.set("images.reused", imageStore.getReused());
+                    metrics.set("images.failed", imageStore.getFailed());
+                }
+                try (ImageVariants imageVariants = new ImageVariants(Paths.get(outputDir), Paths.get(outputDir, ".notion-sync", "image-variants.json"),
+                        ImageVariants.DEFAULT_WIDTHS)) {
+                    imageVariants.apply(trees);
+                    imageVariants.save();
+                }
+            }
+
+            // 并行生成Markdown文件，内容未变化的文件不重写
+            OutputStage output = state.output;
+            SearchIndex searchIndex = state.searchIndex;
+            List<BlogPostDO> titledPosts = new ArrayList<>();
+            List<Future<String>> contentHeads = new ArrayList<>();
+            ExecutorService writeExecutor = newWriteExecutor();
+            try {
+                for (BlogPostDO post : posts) {
+                    if (post.getTitle() != null) {
+                        titledPosts.add(post);
+                        contentHeads.add(writeExecutor.submit(() -> {
+                            long start = System.nanoTime();
+                            String contentHead = writeMarkdownFile(post, blogsDir.resolve(post.getFilename()), output, searchIndex);
+                            writeHtmlFiles(post, blogsDir.resolve("html"), output);
+                            metrics.recordRender(System.nanoTime() - start);
+                            return contentHead;
+                        }));
                     }
-                    indexEntry.put("excerpt", excerpt);
+                }
+                for (Future<String> contentHead : contentHeads) {
+                    contentHead.get();
+                }
+            } finally {
+                writeExecutor.shutdownNow();
+            }
+
+            // 更新索引
+            Path indexFile = blogsDir.resolve("index.json");
+            BlogIndex index = state.index;
+            Set<String> writtenFilenames = new HashSet<>();
+            for (BlogPostDO post : titledPosts) {
+                writtenFilenames.add(post.getFilename());
+            }
+            for (int p = 0; p < titledPosts.size(); p++) {
+                BlogPostDO post = titledPosts.get(p);
+                String contentHead = contentHeads.get(p).get();
 
-                    if (!post.getTags().isEmpty()) {
-                        indexEntry.put("tags", String.join(",", post.getTags()));
+                // 标题变化导致文件名变化时删除旧文件
+                IndexEntry oldEntry = index.get(post.getId());
+                if (oldEntry != null && oldEntry.getFilename() != null && !writtenFilenames.contains(oldEntry.getFilename())) {
+                    output.delete(blogsDir.resolve(oldEntry.getFilename()));
+                    Log.info("删除旧文件: " + oldEntry.getFilename());
+                }
+
+                IndexEntry indexEntry = new IndexEntry();
+                indexEntry.setId(post.getId());
+                indexEntry.setFilename(post.getFilename());
+                indexEntry.setTitle(post.getTitle());
+                indexEntry.setDate(post.getCreatedTime().format(DATE_FORMATTER));
+                indexEntry.setUpdate(post.getLastEditedTime().format(DATE_FORMATTER));
+
+                // 处理摘要
+                String excerpt = post.getExcerpt();
+                if (excerpt == null || excerpt.trim().isEmpty()) {
+                    if (contentHead == null) {
+                        excerpt = "暂无摘要";
+                    } else if (contentHead.length() > EXCERPT_LENGTH) {
+                        excerpt = contentHead.substring(0, EXCERPT_LENGTH) + "...";
+                    } else {
+                        excerpt = contentHead;
                     }
+                }
+                indexEntry.setExcerpt(excerpt);
 
-                    index.add(indexEntry);
+                if (!post.getTags().isEmpty()) {
+                    indexEntry.setTags(String.join(",", post.getTags()));
                 }
+
+                // 新增或替换已有的文章
+                index.put(indexEntry);
             }
 
-            // 按日期排序（最新的在前）
-            index.sort((a, b) -> ((String) b.get("date")).compareTo((String) a.get("date")));
+            output.write(indexFile, index::write);
+            new IndexShards(blogsDir.resolve("index"), IndexShards.DEFAULT_PAGE_SIZE, output).write(index);
+
+            // 搜索索引
+            int unindexed = searchIndex.retain(index);
+            if (unindexed > 0) {
+                Log.warn("搜索索引缺少 " + unindexed + " 篇文章，使用 --full 重新同步可补全");
+            }
+            searchIndex.writeShards(index, blogsDir.resolve("search"), output);
+            searchIndex.save();
+            output.save();
+            Log.info("写入 " + output.getWritten() + " 个文件, 未变化 " + output.getUnchanged() + " 个, 删除 " + output.getDeleted() + " 个");
+            metrics.set("files.written", output.getWritten());
+            metrics.set("files.unchanged", output.getUnchanged());
+            metrics.set("files.deleted", output.getDeleted());
 
-            String indexJson = JSON.toJSONString(index, JSONWriter.Feature.PrettyFormat);
-            Files.writeString(Paths.get(outputDir, "blogs", "index.json"), indexJson);
+            // 文件全部写入后才推进水位线
+            syncState.advance(processedWatermark);
+            syncState.save();
 
-            System.out.println("同步完成！生成 " + index.size() + " 篇文章");
+            Log.info("同步完成！生成 " + index.size() + " 篇文章");
+            metrics.set("status", "success");
+            metrics.set("posts.fetched", posts.size());
+            metrics.set("posts.indexed", index.size());
+            metrics.set("watermark", syncState.getWatermark());
+            writeReport(metrics);
+            if (keepWarm) {
+                warm = state;
+            }
+            return true;
 
         } catch (Exception e) {
-            System.err.println("同步失败: " + e.getMessage());
-            e.printStackTrace();
-            System.exit(1);
+            Log.error("同步失败: " + e.getMessage(), e);
+            metrics.set("status", "failed");
+            metrics.set("error", String.valueOf(e.getMessage()));
+            writeReport(metrics);
+            return false;
         }
     }
 
     /**
-     * 从实体类创建Markdown文件
+     * 从磁盘加载同步需要的状态
      */
-    private String generateMarkdownFile(BlogPostDO post) {
-        StringBuilder markdown = new StringBuilder();
+    private LoadedState loadState() {
+        Path stateDir = Paths.get(outputDir, ".notion-sync");
+        LoadedState state = new LoadedState();
+        state.syncState = SyncState.load(stateDir.resolve("state.json"));
+        state.blockCache = useBlockCache
+                ? BlockCache.load(stateDir.resolve("cache").resolve("blocks.jsonl"), BlockCache.DEFAULT_MAX_BLOCKS)
+                : null;
+        state.output = OutputStage.load(Paths.get(outputDir), stateDir.resolve("cache").resolve("outputs.json"));
+        state.searchIndex = SearchIndex.load(stateDir.resolve("search").resolve("forward.jsonl"));
+        state.index = BlogIndex.load(Paths.get(outputDir, "blogs", "index.json"));
+        return state;
+    }
 
-        // 头部元数据
-        markdown.append("---\n");
-        markdown.append("title: \"").append(escapeYaml(post.getTitle())).append("\"\n");
-        markdown.append("date: \"").append(post.getCreatedTime().format(DATE_FORMATTER)).append("\"\n");
+    /**
+     * 一次同步使用的持久化状态，常驻模式下在多次同步之间保留
+     */
+    private static final class LoadedState {
+        private SyncState syncState;
+        private BlockCache blockCache;
+        private OutputStage output;
+        private SearchIndex searchIndex;
+        private BlogIndex index;
+    }
+
+    /**
+     * 关闭常驻模式保留的客户端
+     */
+    @Override
+    public void close() {
+        if (warmClient != null) {
+            warmClient.close();
+            warmClient = null;
+        }
+        warm = null;
+    }
+
+    /**
+     * 写出运行报告，失败不影响同步结果
+     */
+    private void writeReport(Metrics metrics) {
+        metrics.set("options.fetchConcurrency", fetchConcurrency);
+        metrics.set("options.pageParallelism", pageParallelism);
+        metrics.set("options.fullSync", fullSync);
+        metrics.set("options.blockCache", useBlockCache);
+        try {
+            Path report = metrics.writeReport(Paths.get(outputDir, ".notion-sync", "reports"));
+            Log.info("请求 %d 个, 接收 %.1f KB, 运行报告: %s",
+                    metrics.getRequests(), metrics.getBytesReceived() / 1024.0, report);
+        } catch (IOException e) {
+            Log.warn("无法写出运行报告: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 从实体类创建Markdown文件，头部元数据和正文直接写入文件，同时为搜索索引分词
+     *
+     * @return 正文开头用于生成摘要的部分，没有正文时为null
+     */
+    private String writeMarkdownFile(BlogPostDO post, Path filePath, OutputStage output, SearchIndex searchIndex) throws IOException {
+        String[] contentHead = new String[1];
+        SearchTokenizer tokenizer = new SearchTokenizer();
+        tokenizer.setWeight(TITLE_WEIGHT);
+        tokenizer.text(post.getTitle());
+        tokenizer.endBlock();
+        tokenizer.setWeight(1);
+        SyncEvents.Render event = new SyncEvents.Render();
+        event.begin();
+        boolean changed = output.write(filePath, writer -> {
+            // 头部元数据
+            writer.write("---\n");
+            writer.append("title: \"").append(escapeYaml(post.getTitle())).append("\"\n");
+            writer.append("date: \"").append(post.getCreatedTime().format(DATE_FORMATTER)).append("\"\n");
+            if (!post.getTags().isEmpty()) {
+                writer.append("tags: \"").append(String.join(",", post.getTags())).append("\"\n");
+            }
+            writer.write("---\n\n");
+
+            // 内容
+            if (post.getBlocks() != null) {
+                HeadCapture body = new HeadCapture(writer, EXCERPT_LENGTH + 1);
+                new MarkdownConverter(body, tokenizer).write(post.getBlocks());
+                contentHead[0] = body.getHead();
+            }
+        });
+        commitRender(event, post, "markdown");
+        searchIndex.put(post.getId(), tokenizer.getTerms());
+        Log.debug("%s%s", changed ? "生成文件: " : "文件未变化: ", post.getFilename());
+        return contentHead[0];
+    }
+
+    /**
+     * 生成预渲染的HTML正文 html/&lt;id&gt;.html 和元数据 html/&lt;id&gt;.json，前端直接插入页面
+     */
+    private void writeHtmlFiles(BlogPostDO post, Path htmlDir, OutputStage output) throws IOException {
+        SyncEvents.Render event = new SyncEvents.Render();
+        event.begin();
+        output.write(htmlDir.resolve(post.getId() + ".html"), writer -> {
+            if (post.getBlocks() != null) {
+                new HtmlConverter(writer).write(post.getBlocks());
+            }
+        });
+        commitRender(event, post, "html");
+
+        JSONObject meta = new JSONObject();
+        meta.put("id", post.getId());
+        meta.put("filename", post.getFilename());
+        meta.put("title", post.getTitle());
+        meta.put("date", post.getCreatedTime().format(DATE_FORMATTER));
+        meta.put("update", post.getLastEditedTime().format(DATE_FORMATTER));
         if (!post.getTags().isEmpty()) {
-            markdown.append("tags: \"").append(String.join(",", post.getTags())).append("\"\n");
+            meta.put("tags", String.join(",", post.getTags()));
         }
-        markdown.append("---\n\n");
+        String metaJson = JSON.toJSONString(meta, JSONWriter.Feature.PrettyFormat);
+        output.write(htmlDir.resolve(post.getId() + ".json"), writer -> writer.write(metaJson));
+    }
 
-        // 内容
-        if (post.getContent() != null) {
-            markdown.append(post.getContent());
+    private static void commitRender(SyncEvents.Render event, BlogPostDO post, String format) {
+        if (event.shouldCommit()) {
+            event.postId = post.getId();
+            event.format = format;
+            event.commit();
         }
+    }
 
-        return markdown.toString();
+    private static ExecutorService newWriteExecutor() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "output-writer-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
-     * 加载现有索引文件
+     * 转发写入的同时记录开头若干字符，生成摘要时不必再持有整篇正文
      */
-    private List<Map<String, Object>> loadExistingIndex() {
-        try {
-            Path indexFile = Paths.get(outputDir, "blogs", "index.json");
-            if (Files.exists(indexFile)) {
-                String content = Files.readString(indexFile);
-                if (content != null && !content.trim().isEmpty()) {
-                    List<Map<String, Object>> index = JSON.parseArray(content, (Type) Map.class);
-                    System.out.println("成功加载现有索引文件");
-                    return index != null ? index : new ArrayList<>();
-                }
+    private static final class HeadCapture implements Appendable {
+        private final Appendable out;
+        private final StringBuilder head;
+        private final int limit;
+
+        HeadCapture(Appendable out, int limit) {
+            this.out = out;
+            this.limit = limit;
+            this.head = new StringBuilder(limit);
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            int remaining = limit - head.length();
+            if (remaining > 0) {
+                head.append(csq, start, Math.min(end, start + remaining));
             }
-        } catch (Exception e) {
-            System.out.println("无法加载现有索引文件，将创建新索引: " + e.getMessage());
+            out.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            if (head.length() < limit) {
+                head.append(c);
+            }
+            out.append(c);
+            return this;
+        }
+
+        String getHead() {
+            return head.toString();
         }
-        System.out.println("创建新的索引文件");
-        return new ArrayList<>();
     }
 
     private String escapeYaml(String text) {
@@ -147,9 +682,34 @@ public class NotionSync {
     }
 
     public static void main(String[] args) {
+        // 生成缩小图片时使用AWT，运行环境通常没有显示设备
+        System.setProperty("java.awt.headless", "true");
+        if (args.length >= 1 && args[0].startsWith("--config=")) {
+            syncSources(args);
+            return;
+        }
         if (args.length < 3) {
-            System.out.println("用法: java com.blog.NotionSync <NOTION_TOKEN> <DATABASE_ID> <OUTPUT_DIR>");
+            System.out.println("用法: java com.blog.NotionSync <NOTION_TOKEN> <DATABASE_ID> <OUTPUT_DIR> [选项]");
+            System.out.println("      java com.blog.NotionSync --config=<FILE> [选项]  按配置文件同步多个数据库，Token取自环境变量");
             System.out.println("环境变量: NOTION_TOKEN, NOTION_DATABASE_ID");
+            System.out.println("选项: --fetch-concurrency=<N>  获取块树时的并发请求数，默认 " + NotionClient.DEFAULT_FETCH_CONCURRENCY);
+            System.out.println("      --page-parallelism=<N>   同时处理的页面数，默认 " + NotionClient.DEFAULT_PAGE_PARALLELISM);
+            System.out.println("      --no-cache               不使用本地子块缓存");
+            System.out.println("      --full                   忽略同步水位线，全量重建");
+            System.out.println("      --no-images              不下载图片，保留Notion原链接");
+            System.out.println("      --api-base=<URL>         Notion API根地址，默认 " + LiveTransport.DEFAULT_API_BASE);
+            System.out.println("      --requests-per-second=<N> 每秒请求数上限，默认 " + RateLimiter.NOTION_REQUESTS_PER_SECOND);
+            System.out.println("      --record=<DIR>           把请求和响应录制到目录中");
+            System.out.println("      --replay=<DIR>           从录制目录回放，不访问网络，此时不需要Token；");
+            System.out.println("                               数据库查询忽略水位线条件，总是返回录制时的结果");
+            System.out.println("      --replay-latency=<MS>    回放时每个请求的延迟，默认 0");
+            System.out.println("      --replay-429-rate=<R>    回放时返回429的比例（0到1），默认 0");
+            System.out.println("      --jfr=<FILE>             同步期间录制JFR，可在JMC中查看各阶段耗时");
+            System.out.println("      --daemon                 常驻运行，定期检查数据库变化并增量同步");
+            System.out.println("      --poll-interval=<S>      常驻模式检查变化的间隔秒数，默认 " + SyncDaemon.DEFAULT_POLL_SECONDS);
+            System.out.println("      --health-port=<N>        常驻模式健康检查和指标接口的本机端口，默认 " + SyncDaemon.DEFAULT_PORT);
+            System.out.println("      --verbose                输出每个页面和文件的详细日志");
+            System.out.println("      --quiet                  只输出警告和错误");
             System.exit(1);
         }
 
@@ -165,7 +725,8 @@ public class NotionSync {
             databaseId = System.getenv("NOTION_DATABASE_ID");
         }
 
-        if (apiToken == null || apiToken.isEmpty()) {
+        boolean replay = Arrays.stream(args).anyMatch(arg -> arg.startsWith("--replay="));
+        if ((apiToken == null || apiToken.isEmpty()) && !replay) {
             System.err.println("错误: 必须提供Notion API Token");
             System.exit(1);
         }
@@ -174,7 +735,164 @@ public class NotionSync {
             System.exit(1);
         }
 
+        // 常驻模式的选项在这里处理，其余选项交给同步
+        boolean daemon = false;
+        int pollSeconds = SyncDaemon.DEFAULT_POLL_SECONDS;
+        int healthPort = SyncDaemon.DEFAULT_PORT;
+        List<String> syncArgs = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--daemon")) {
+                daemon = true;
+            } else if (arg.startsWith("--poll-interval=")) {
+                pollSeconds = parseIntOption(arg);
+            } else if (arg.startsWith("--health-port=")) {
+                healthPort = parseIntOption(arg);
+            } else {
+                syncArgs.add(arg);
+            }
+        }
+
         NotionSync sync = new NotionSync(apiToken, databaseId, outputDir);
-        sync.sync();
+        applyOptions(sync, syncArgs);
+        if (daemon) {
+            runDaemon(sync, pollSeconds, healthPort);
+        } else if (!sync.sync()) {
+            System.exit(1);
+        }
+    }
+
+    private static void runDaemon(NotionSync sync, int pollSeconds, int healthPort) {
+        try {
+            SyncDaemon daemon = new SyncDaemon(sync, pollSeconds * 1000L, healthPort);
+            Runtime.getRuntime().addShutdownHook(new Thread(daemon::close, "sync-daemon-shutdown"));
+            daemon.start(sync.getJfrFile());
+            daemon.await();
+        } catch (Exception e) {
+            Log.error("常驻模式启动失败: " + e.getMessage(), e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 多数据库模式：所有数据库共享连接、限流器和工作线程，选项对所有数据库生效
+     */
+    private static void syncSources(String[] args) {
+        boolean replay = Arrays.stream(args).anyMatch(arg -> arg.startsWith("--replay="));
+        String apiToken = System.getenv("NOTION_TOKEN");
+        if ((apiToken == null || apiToken.isEmpty()) && !replay) {
+            System.err.println("错误: 必须通过环境变量 NOTION_TOKEN 提供Notion API Token");
+            System.exit(1);
+        }
+
+        NotionSync options = new NotionSync(apiToken, null, null);
+        applyOptions(options, Arrays.asList(args).subList(1, args.length));
+        boolean success;
+        try {
+            List<SyncSource> sources = MultiSourceSync.loadSources(Paths.get(optionValue(args[0])));
+            try (MultiSourceSync multiSync = new MultiSourceSync(options, sources)) {
+                success = runRecorded(options.getJfrFile(), multiSync::run);
+            }
+        } catch (Exception e) {
+            Log.error("多数据库同步失败: " + e.getMessage(), e);
+            success = false;
+        }
+        if (!success) {
+            System.exit(1);
+        }
+    }
+
+    private static void applyOptions(NotionSync sync, List<String> args) {
+        for (String arg : args) {
+            if (arg.startsWith("--fetch-concurrency=")) {
+                sync.setFetchConcurrency(parseIntOption(arg));
+            } else if (arg.startsWith("--page-parallelism=")) {
+                sync.setPageParallelism(parseIntOption(arg));
+            } else if (arg.equals("--no-cache")) {
+                sync.setUseBlockCache(false);
+            } else if (arg.equals("--full")) {
+                sync.setFullSync(true);
+            } else if (arg.equals("--no-images")) {
+                sync.setLocalizeImages(false);
+            } else if (arg.startsWith("--jfr=")) {
+                sync.setJfrFile(Paths.get(optionValue(arg)));
+            } else if (arg.equals("--verbose")) {
+                Log.setLevel(Log.Level.DEBUG);
+            } else if (arg.equals("--quiet")) {
+                Log.setLevel(Log.Level.WARN);
+            } else if (arg.startsWith("--api-base=")) {
+                sync.setApiBase(optionValue(arg));
+            } else if (arg.startsWith("--requests-per-second=")) {
+                sync.setRequestsPerSecond(parsePositiveDoubleOption(arg));
+            } else if (arg.startsWith("--record=")) {
+                sync.setRecordDir(Paths.get(optionValue(arg)));
+            } else if (arg.startsWith("--replay=")) {
+                sync.setReplayDir(Paths.get(optionValue(arg)));
+            } else if (arg.startsWith("--replay-latency=")) {
+                sync.setReplayLatencyMillis(parseNonNegativeIntOption(arg));
+            } else if (arg.startsWith("--replay-429-rate=")) {
+                sync.setReplayThrottleRate(parseRateOption(arg));
+            } else {
+                System.err.println("错误: 未知选项 " + arg);
+                System.exit(1);
+            }
+        }
+    }
+
+    private static String optionValue(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static int parseIntOption(String arg) {
+        String value = optionValue(arg);
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("错误: 选项值必须是正整数 " + arg);
+        System.exit(1);
+        return -1;
+    }
+
+    private static int parseNonNegativeIntOption(String arg) {
+        try {
+            int n = Integer.parseInt(optionValue(arg));
+            if (n >= 0) {
+                return n;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("错误: 选项值必须是非负整数 " + arg);
+        System.exit(1);
+        return -1;
+    }
+
+    private static double parsePositiveDoubleOption(String arg) {
+        try {
+            double value = Double.parseDouble(optionValue(arg));
+            if (value > 0 && Double.isFinite(value)) {
+                return value;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("错误: 选项值必须是正数 " + arg);
+        System.exit(1);
+        return -1;
+    }
+
+    private static double parseRateOption(String arg) {
+        try {
+            double rate = Double.parseDouble(optionValue(arg));
+            if (rate >= 0 && rate <= 1) {
+                return rate;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("错误: 选项值必须在0到1之间 " + arg);
+        System.exit(1);
+        return -1;
     }
-}
\ No newline at end of file
+}
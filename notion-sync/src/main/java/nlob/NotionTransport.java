@@ -0,0 +1,70 @@
+package nlob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * NotionClient 与 Notion API 之间的传输层。
+ * <p>
+ * 只负责发送一次请求并返回原始响应，限流、重试和解析都在 NotionClient 中完成，
+ * 所以可以换成录制或回放的实现，在没有网络和Token的情况下重现一次真实的同步
+ */
+public interface NotionTransport extends AutoCloseable {
+
+    /**
+     * 发送一次请求
+     *
+     * @param method HTTP方法，GET或POST
+     * @param path   相对于API根地址的路径，包含查询参数，例如 /blocks/xxx/children?page_size=100
+     * @param body   JSON请求体，GET请求为null
+     * @return 响应，由调用方负责关闭
+     */
+    Response send(String method, String path, String body) throws IOException;
+
+    @Override
+    void close();
+
+    /**
+     * 一次请求的响应，响应体以流的形式读取
+     */
+    final class Response implements Closeable {
+        private final int code;
+        private final String retryAfter;
+        private final InputStream body;
+
+        public Response(int code, String retryAfter, InputStream body) {
+            this.code = code;
+            this.retryAfter = retryAfter;
+            this.body = body;
+        }
+
+        public int code() {
+            return code;
+        }
+
+        /**
+         * Retry-After响应头，没有时为null
+         */
+        public String retryAfter() {
+            return retryAfter;
+        }
+
+        public InputStream body() {
+            return body;
+        }
+
+        /**
+         * 读取整个响应体，用于错误信息
+         */
+        public String bodyString() throws IOException {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import nlob.utils.FileUtil;
+import nlob.utils.Log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 输出阶段：内容没有变化的文件不重写。
+ * <p>
+ * 内容先写入目标目录下的临时文件，同时计算SHA-256。哈希与现有文件一致时丢弃临时文件，
+ * 否则原子替换目标文件。清单记录每个文件的哈希、大小和修改时间，
+ * 大小或修改时间对不上（例如重新检出了仓库）时才重新读取现有文件计算哈希。
+ * 不同文件的写入可以并发进行
+ */
+public class OutputStage {
+    static final int FORMAT_VERSION = 1;
+
+    private final Path root;
+    private final Path manifestFile;
+    private final Map<String, FileRecord> manifest = new ConcurrentHashMap<>();
+
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger deleted = new AtomicInteger();
+
+    private record FileRecord(String hash, long size, long modified) {
+    }
+
+    /**
+     * 向Writer写出文件内容，Writer已带缓冲，编码为UTF-8
+     */
+    public interface ContentWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    private OutputStage(Path root, Path manifestFile) {
+        this.root = root.toAbsolutePath().normalize();
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * 加载输出清单，文件不存在或无法解析时清单为空，所有文件都会与磁盘内容比较
+     */
+    public static OutputStage load(Path root, Path manifestFile) {
+        OutputStage stage = new OutputStage(root, manifestFile);
+        try {
+            if (Files.exists(manifestFile)) {
+                JSONObject json = JSON.parseObject(Files.readString(manifestFile));
+                if (json != null && json.getIntValue("version") == FORMAT_VERSION) {
+                    JSONObject files = json.getJSONObject("files");
+                    for (String key : files.keySet()) {
+                        JSONObject item = files.getJSONObject(key);
+                        stage.manifest.put(key, new FileRecord(item.getString("hash"), item.getLongValue("size"), item.getLongValue("modified")));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.warn("无法加载输出清单，将比较现有文件: " + e.getMessage());
+            stage.manifest.clear();
+        }
+        return stage;
+    }
+
+    /**
+     * 写出文件，内容与现有文件相同时不做任何修改
+     *
+     * @return 文件是否被实际写入
+     */
+    public boolean write(Path target, ContentWriter content) throws IOException {
+        SyncEvents.FileWrite event = new SyncEvents.FileWrite();
+        event.begin();
+        boolean changed = writeFile(target, content);
+        if (event.shouldCommit()) {
+            event.path = key(target);
+            event.changed = changed;
+            event.commit();
+        }
+        return changed;
+    }
+
+    private boolean writeFile(Path target, ContentWriter content) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = FileUtil.createTempFile(dir, "." + target.getFileName());
+        try {
+            MessageDigest digest = newDigest();
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new DigestOutputStream(Files.newOutputStream(temp), digest), StandardCharsets.UTF_8))) {
+                content.write(writer);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            if (hash.equals(existingHash(target))) {
+                unchanged.incrementAndGet();
+                return false;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            remember(target, hash);
+            written.incrementAndGet();
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 删除不再需要的文件（例如文章改名后的旧文件）
+     */
+    public void delete(Path target) throws IOException {
+        manifest.remove(key(target));
+        if (Files.deleteIfExists(target)) {
+            deleted.incrementAndGet();
+        }
+    }
+
+    /**
+     * 删除目录下本次没有生成的 .json 文件，用于清理不再需要的分片
+     */
+    public void deleteStale(Path directory, Set<Path> generated) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> stale = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(f -> f.getFileName().toString().endsWith(".json") && !generated.contains(f))
+                    .forEach(stale::add);
+        }
+        for (Path file : stale) {
+            delete(file);
+        }
+    }
+
+    /**
+     * 原子地写回清单，已不存在的文件不再记录
+     */
+    public void save() throws IOException {
+        Files.createDirectories(manifestFile.getParent());
+        JSONObject files = new JSONObject();
+        for (Map.Entry<String, FileRecord> e : manifest.entrySet()) {
+            if (!Files.exists(root.resolve(e.getKey()))) continue;
+            JSONObject item = new JSONObject();
+            item.put("hash", e.getValue().hash());
+            item.put("size", e.getValue().size());
+            item.put("modified", e.getValue().modified());
+            files.put(e.getKey(), item);
+        }
+        JSONObject json = new JSONObject();
+        json.put("version", FORMAT_VERSION);
+        json.put("files", files);
+        Path temp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        Files.writeString(temp, JSON.toJSONString(json, JSONWriter.Feature.PrettyFormat));
+        Files.move(temp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int getWritten() {
+        return written.get();
+    }
+
+    public int getUnchanged() {
+        return unchanged.get();
+    }
+
+    public int getDeleted() {
+        return deleted.get();
+    }
+
+    /**
+     * 计数清零，常驻模式下每次同步单独统计
+     */
+    public void resetCounters() {
+        written.set(0);
+        unchanged.set(0);
+        deleted.set(0);
+    }
+
+    /**
+     * 现有文件的哈希，文件不存在时返回null。清单记录与文件大小、修改时间一致时直接使用记录
+     */
+    private String existingHash(Path target) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(target, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        String key = key(target);
+        FileRecord record = manifest.get(key);
+        if (record != null && record.size() == attrs.size() && record.modified() == attrs.lastModifiedTime().toMillis()) {
+            return record.hash();
+        }
+
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(target), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        manifest.put(key, new FileRecord(hash, attrs.size(), attrs.lastModifiedTime().toMillis()));
+        return hash;
+    }
+
+    private void remember(Path target, String hash) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(target, BasicFileAttributes.class);
+        manifest.put(key(target), new FileRecord(hash, attrs.size(), attrs.lastModifiedTime().toMillis()));
+    }
+
+    private String key(Path target) {
+        return root.relativize(target.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package nlob;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程安全的令牌桶限流器。
+ * 收到429时速率减半并按Retry-After暂停发放令牌，之后每次成功请求缓慢恢复速率，直到上限。
+ */
+public class RateLimiter {
+    /** Notion对每个集成大约允许每秒3个请求 */
+    public static final double NOTION_REQUESTS_PER_SECOND = 3.0;
+
+    private static final double MIN_RATE = 0.2;
+    /** 每次成功请求增加的速率，占速率上限的比例，减半后约25次成功请求恢复到上限 */
+    private static final double RECOVERY_FRACTION = 0.02;
+
+    private final double maxRate;
+    private final double burst;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public RateLimiter(double maxRate) {
+        if (maxRate <= 0) {
+            throw new IllegalArgumentException("速率必须大于0: " + maxRate);
+        }
+        this.maxRate = maxRate;
+        this.burst = Math.max(1.0, maxRate);
+        this.rate = maxRate;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * 阻塞直到获得一个令牌
+     */
+    public void acquire() throws InterruptedException {
+        waiting.incrementAndGet();
+        try {
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    if (now - pausedUntilNanos < 0) {
+                        waitNanos = pausedUntilNanos - now;
+                    } else if (tokens >= 1.0) {
+                        tokens -= 1.0;
+                        return;
+                    } else {
+                        waitNanos = (long) ((1.0 - tokens) / rate * 1_000_000_000L);
+                    }
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 1_000_000L));
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * 请求被限流（429）：速率减半，并在retryAfterMillis内不再发放令牌。
+     * 同一次限流中并发请求收到的429只减半一次，暂停期间收到的429只延长暂停
+     */
+    public synchronized void onThrottled(long retryAfterMillis) {
+        long now = System.nanoTime();
+        refill(now);
+        if (now - pausedUntilNanos >= 0) {
+            rate = Math.max(MIN_RATE, rate / 2);
+        }
+        tokens = 0;
+        long until = now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+        if (until - pausedUntilNanos > 0) {
+            pausedUntilNanos = until;
+        }
+    }
+
+    /**
+     * 请求成功：逐步恢复速率
+     */
+    public synchronized void onSuccess() {
+        if (rate < maxRate) {
+            rate = Math.min(maxRate, rate + maxRate * RECOVERY_FRACTION);
+        }
+    }
+
+    /**
+     * 当前发放速率（请求/秒）
+     */
+    public synchronized double getCurrentRate() {
+        return rate;
+    }
+
+    /**
+     * 正在等待令牌的线程数
+     */
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    private void refill(long now) {
+        // 暂停期间不积累令牌，避免暂停结束后立即突发
+        long from = pausedUntilNanos - lastRefillNanos > 0 ? pausedUntilNanos : lastRefillNanos;
+        long elapsed = now - from;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * rate / 1_000_000_000L);
+            lastRefillNanos = now;
+        }
+    }
+}
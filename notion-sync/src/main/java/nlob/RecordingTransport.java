@@ -0,0 +1,122 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import nlob.utils.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 录制：请求交给另一个传输层发送，同时把请求和响应保存到目录中，供 {@link ReplayTransport} 回放。
+ * <p>
+ * 每对请求和响应保存为一个JSON文件，文件名是方法、路径和请求体的SHA-256，
+ * 分页游标在路径或请求体中，所以同一次同步的每一页都对应不同的文件。
+ * 数据库查询中按 last_edited_time 的水位线过滤条件不参与计算：录制后水位线会推进，
+ * 回放时请求体中的时间不同，仍然对应同一个文件，返回录制时的查询结果。
+ * 429和5xx是暂时性的错误，不录制，回放时由 {@link ReplayTransport} 按配置注入。
+ * 文件中不包含Token等请求头
+ */
+public class RecordingTransport implements NotionTransport {
+    static final int FORMAT_VERSION = 1;
+
+    private final NotionTransport delegate;
+    private final Path dir;
+    private final AtomicInteger recorded = new AtomicInteger();
+
+    public RecordingTransport(NotionTransport delegate, Path dir) throws IOException {
+        this.delegate = delegate;
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    @Override
+    public Response send(String method, String path, String body) throws IOException {
+        try (Response response = delegate.send(method, path, body)) {
+            byte[] bytes = response.body().readAllBytes();
+            int code = response.code();
+            if (code != 429 && code < 500) {
+                save(method, path, body, code, bytes);
+            }
+            return new Response(code, response.retryAfter(), new ByteArrayInputStream(bytes));
+        }
+    }
+
+    public int getRecorded() {
+        return recorded.get();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+        Log.info("录制了 " + recorded.get() + " 个请求到 " + dir);
+    }
+
+    private void save(String method, String path, String body, int code, byte[] response) throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("version", FORMAT_VERSION);
+        json.put("method", method);
+        json.put("path", path);
+        json.put("request", body);
+        json.put("status", code);
+        json.put("response", new String(response, StandardCharsets.UTF_8));
+        Path file = fixtureFile(dir, method, path, body);
+        Path temp = Files.createTempFile(dir, ".fixture", ".tmp");
+        try {
+            Files.writeString(temp, JSON.toJSONString(json, JSONWriter.Feature.PrettyFormat, JSONWriter.Feature.WriteNulls));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        recorded.incrementAndGet();
+    }
+
+    /**
+     * 一个请求对应的录制文件
+     */
+    static Path fixtureFile(Path dir, String method, String path, String body) {
+        return dir.resolve(HexFormat.of().formatHex(fixtureKey(method, path, body)) + ".json");
+    }
+
+    /**
+     * 请求的SHA-256，忽略水位线过滤条件
+     */
+    static byte[] fixtureKey(String method, String path, String body) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        digest.update((method + " " + path + "\n").getBytes(StandardCharsets.UTF_8));
+        if (body != null) {
+            digest.update(withoutWatermarkFilter(body).getBytes(StandardCharsets.UTF_8));
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 去掉按 last_edited_time 过滤的条件，其他请求体原样返回
+     */
+    private static String withoutWatermarkFilter(String body) {
+        if (!body.contains("\"filter\"")) {
+            return body;
+        }
+        JSONObject json = JSON.parseObject(body);
+        JSONObject filter = json != null ? json.getJSONObject("filter") : null;
+        if (filter == null || !"last_edited_time".equals(filter.getString("timestamp"))) {
+            return body;
+        }
+        json.remove("filter");
+        return json.toJSONString();
+    }
+}
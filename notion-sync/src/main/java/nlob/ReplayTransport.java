@@ -0,0 +1,128 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import nlob.utils.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 回放：从 {@link RecordingTransport} 录制的目录中读取响应，不访问网络。
+ * <p>
+ * 可以为每个请求注入固定的延迟，并按比例返回429，用于在离线环境下
+ * 按真实工作区的结构比较并发和缓存参数的效果。是否返回429由请求的录制文件哈希、
+ * 种子和该请求第几次发送决定，与线程调度无关，同样的参数总是得到同样的结果。没有录制的请求返回404
+ */
+public class ReplayTransport implements NotionTransport {
+    private final Path dir;
+    private final long latencyMillis;
+    private final double throttleRate;
+    private final String retryAfterSeconds;
+    private final long seed;
+    /** 每个请求已发送的次数，重试时得到不同的429判定 */
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final AtomicInteger missing = new AtomicInteger();
+
+    public ReplayTransport(Path dir) {
+        this(dir, 0, 0, 1, 0);
+    }
+
+    /**
+     * @param latencyMillis     每个请求注入的延迟（毫秒）
+     * @param throttleRate      返回429的比例，0到1之间
+     * @param retryAfterSeconds 429响应的Retry-After（秒）
+     * @param seed              决定哪些请求返回429的随机种子
+     */
+    public ReplayTransport(Path dir, long latencyMillis, double throttleRate, double retryAfterSeconds, long seed) {
+        if (!Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("回放目录不存在: " + dir);
+        }
+        if (throttleRate < 0 || throttleRate > 1) {
+            throw new IllegalArgumentException("429比例必须在0到1之间: " + throttleRate);
+        }
+        this.dir = dir;
+        this.latencyMillis = latencyMillis;
+        this.throttleRate = throttleRate;
+        this.retryAfterSeconds = Double.toString(retryAfterSeconds);
+        this.seed = seed;
+    }
+
+    @Override
+    public Response send(String method, String path, String body) throws IOException {
+        requests.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("回放延迟时被中断");
+            }
+        }
+        byte[] key = RecordingTransport.fixtureKey(method, path, body);
+        String name = HexFormat.of().formatHex(key);
+        if (throttleRate > 0 && shouldThrottle(key, attempts.computeIfAbsent(name, k -> new AtomicInteger()).getAndIncrement())) {
+            throttled.incrementAndGet();
+            return response(429, retryAfterSeconds, error(429, "rate_limited", "回放注入的限流"));
+        }
+
+        JSONObject fixture;
+        try {
+            fixture = JSON.parseObject(Files.readString(dir.resolve(name + ".json")));
+        } catch (NoSuchFileException e) {
+            missing.incrementAndGet();
+            return response(404, null, error(404, "object_not_found", "回放目录中没有该请求: " + method + " " + path));
+        }
+        if (fixture == null || fixture.getIntValue("version") != RecordingTransport.FORMAT_VERSION) {
+            throw new IOException("录制文件版本不符: " + method + " " + path);
+        }
+        return response(fixture.getIntValue("status"), null, fixture.getString("response"));
+    }
+
+    /**
+     * 由请求哈希、种子和发送次数得到 [0, 1) 之间的确定值，小于比例时返回429
+     */
+    private boolean shouldThrottle(byte[] key, int attempt) {
+        long h = ByteBuffer.wrap(key).getLong() ^ seed ^ ((long) attempt * 0x9E3779B97F4A7C15L);
+        return new SplittableRandom(h).nextDouble() < throttleRate;
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public int getThrottled() {
+        return throttled.get();
+    }
+
+    public int getMissing() {
+        return missing.get();
+    }
+
+    @Override
+    public void close() {
+        Log.info("回放 " + requests.get() + " 个请求, 注入429 " + throttled.get() + " 次, 缺少录制 " + missing.get() + " 个");
+    }
+
+    private static Response response(int code, String retryAfter, String body) {
+        return new Response(code, retryAfter, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String error(int status, String code, String message) {
+        return JSONObject.of("object", "error", "status", status, "code", code, "message", message).toJSONString();
+    }
+}
@@ -0,0 +1,267 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.JSONWriter;
+import nlob.entity.IndexEntry;
+import nlob.utils.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 构建期全文搜索索引。
+ * <p>
+ * 每次同步只会处理变化的文章，所以每篇文章的分词结果（正排索引）持久化在 .notion-sync/search 下，
+ * 文件为JSONL格式：第一行是格式版本，其后每行一篇文章的词频。
+ * 输出时由正排索引生成倒排索引，写在 blogs/search/ 下：
+ * <ul>
+ *     <li>manifest.json：文档数和分片数</li>
+ *     <li>docs.json：文档编号到文章id、标题和日期，编号按索引顺序分配</li>
+ *     <li>terms-N.json：按词的哈希分片的倒排表，每个词对应
+ *     [文档编号差值, 词频, 文档编号差值, 词频, ...]，编号递增，差值编码</li>
+ * </ul>
+ * 分片号为 Java {@code String.hashCode()} 对分片数取模，前端用相同算法只下载查询词所在的分片
+ */
+public class SearchIndex {
+    static final int FORMAT_VERSION = 1;
+    /** 每个分片大约包含的词数，分片数取2的幂 */
+    private static final int TERMS_PER_SHARD = 512;
+    private static final int MAX_SHARDS = 256;
+
+    private final Path file;
+    private final Map<String, Map<String, Integer>> documents = new ConcurrentHashMap<>();
+
+    private SearchIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 加载正排索引，文件不存在、损坏或版本不符时返回空索引
+     */
+    public static SearchIndex load(Path file) {
+        SearchIndex index = new SearchIndex(file);
+        if (!Files.exists(file)) {
+            return index;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || JSON.parseObject(header).getIntValue("version") != FORMAT_VERSION) {
+                Log.info("搜索索引版本不符，已丢弃: " + file);
+                return index;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                index.readLine(line);
+            }
+        } catch (Exception e) {
+            Log.warn("无法加载搜索索引，将重新建立: " + e.getMessage());
+            return new SearchIndex(file);
+        }
+        return index;
+    }
+
+    /**
+     * 替换一篇文章的分词结果
+     */
+    public void put(String id, Map<String, Integer> terms) {
+        documents.put(id, terms);
+    }
+
+    /**
+     * 只保留仍在文章索引中的文章，返回缺少分词结果的文章数
+     */
+    public int retain(BlogIndex blogIndex) {
+        Set<String> ids = new HashSet<>();
+        int missing = 0;
+        for (IndexEntry entry : blogIndex.entries()) {
+            ids.add(entry.getId());
+            if (!documents.containsKey(entry.getId())) {
+                missing++;
+            }
+        }
+        documents.keySet().retainAll(ids);
+        return missing;
+    }
+
+    /**
+     * 原子地写回正排索引
+     */
+    public void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write("{\"version\":" + FORMAT_VERSION + "}");
+            writer.newLine();
+            // 按id排序写出，内容不变时文件也不变
+            for (Map.Entry<String, Map<String, Integer>> e : new TreeMap<>(documents).entrySet()) {
+                JSONObject item = new JSONObject();
+                item.put("id", e.getKey());
+                item.put("terms", new TreeMap<>(e.getValue()));
+                writer.write(item.toJSONString());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 生成倒排索引分片，内容未变化的分片不重写，多余的旧分片删除
+     */
+    public void writeShards(BlogIndex blogIndex, Path dir, OutputStage output) throws IOException {
+        Set<Path> generated = new HashSet<>();
+
+        // 文档编号按索引顺序分配，依次追加，倒排表天然有序
+        List<IndexEntry> docs = new ArrayList<>();
+        Map<String, Postings> postings = new HashMap<>();
+        for (IndexEntry entry : blogIndex.entries()) {
+            Map<String, Integer> terms = documents.get(entry.getId());
+            if (terms == null) continue;
+            int doc = docs.size();
+            docs.add(entry);
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), t -> new Postings()).add(doc, term.getValue());
+            }
+        }
+
+        int shardCount = shardCount(postings.size());
+        List<Map<String, Postings>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new TreeMap<>());
+        }
+        for (Map.Entry<String, Postings> e : postings.entrySet()) {
+            shards.get(Math.floorMod(e.getKey().hashCode(), shardCount)).put(e.getKey(), e.getValue());
+        }
+        for (int i = 0; i < shardCount; i++) {
+            Map<String, Postings> shard = shards.get(i);
+            Path shardFile = dir.resolve("terms-" + i + ".json");
+            generated.add(shardFile);
+            output.write(shardFile, writer -> {
+                try (JSONWriter json = JSONWriter.of()) {
+                    json.startObject();
+                    for (Map.Entry<String, Postings> e : shard.entrySet()) {
+                        json.writeName(e.getKey());
+                        json.writeColon();
+                        json.writeInt32(e.getValue().toArray());
+                    }
+                    json.endObject();
+                    json.flushTo(writer);
+                }
+            });
+        }
+
+        Path docsFile = dir.resolve("docs.json");
+        generated.add(docsFile);
+        output.write(docsFile, writer -> {
+            try (JSONWriter json = JSONWriter.of()) {
+                json.startArray();
+                for (int i = 0; i < docs.size(); i++) {
+                    if (i > 0) {
+                        json.writeComma();
+                    }
+                    IndexEntry entry = docs.get(i);
+                    json.startObject();
+                    json.writeName("id");
+                    json.writeColon();
+                    json.writeString(entry.getId());
+                    json.writeName("title");
+                    json.writeColon();
+                    json.writeString(entry.getTitle());
+                    json.writeName("date");
+                    json.writeColon();
+                    json.writeString(entry.getDate());
+                    json.endObject();
+                }
+                json.endArray();
+                json.flushTo(writer);
+            }
+        });
+
+        JSONObject manifest = new JSONObject();
+        manifest.put("version", FORMAT_VERSION);
+        manifest.put("docs", docs.size());
+        manifest.put("shards", shardCount);
+        Path manifestFile = dir.resolve("manifest.json");
+        generated.add(manifestFile);
+        String manifestJson = JSON.toJSONString(manifest, JSONWriter.Feature.PrettyFormat);
+        output.write(manifestFile, writer -> writer.write(manifestJson));
+
+        output.deleteStale(dir, generated);
+        Log.info("生成搜索索引: " + docs.size() + " 篇文章, " + postings.size() + " 个词, " + shardCount + " 个分片");
+    }
+
+    private static int shardCount(int terms) {
+        int shards = 1;
+        while (shards < MAX_SHARDS && shards * TERMS_PER_SHARD < terms) {
+            shards <<= 1;
+        }
+        return shards;
+    }
+
+    private void readLine(String line) {
+        String id = null;
+        Map<String, Integer> terms = new HashMap<>();
+        try (JSONReader reader = JSONReader.of(line)) {
+            reader.nextIfObjectStart();
+            while (!reader.nextIfObjectEnd()) {
+                switch (reader.readFieldName()) {
+                    case "id":
+                        id = reader.readString();
+                        break;
+                    case "terms":
+                        reader.nextIfObjectStart();
+                        while (!reader.nextIfObjectEnd()) {
+                            String term = reader.readFieldName();
+                            terms.put(term, reader.readInt32Value());
+                        }
+                        reader.nextIfComma();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.nextIfComma();
+        }
+        if (id != null) {
+            documents.put(id, terms);
+        }
+    }
+
+    /**
+     * 一个词的倒排表，按文档编号递增追加，存储为差值和词频交替的int数组
+     */
+    private static final class Postings {
+        private int[] data = new int[4];
+        private int size;
+        private int lastDoc;
+
+        void add(int doc, int frequency) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = doc - lastDoc;
+            data[size++] = frequency;
+            lastDoc = doc;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
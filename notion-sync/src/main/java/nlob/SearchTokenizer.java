@@ -0,0 +1,112 @@
+package nlob;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 全文搜索分词，统计一篇文章中每个词的出现次数。
+ * 拉丁字母和数字按单词切分并转小写；中日韩文字没有空格分词，按相邻两个字切成二元组，
+ * 孤立的单个汉字作为一个词。同一块内连续写入的文本视为一段，词可以跨富文本片段，
+ * 但不会跨块。前端查询时使用相同的规则切分查询词
+ */
+public class SearchTokenizer implements MarkdownConverter.TextSink {
+    /** 过长的单词通常是链接、哈希值等，不建索引 */
+    static final int MAX_WORD_LENGTH = 32;
+
+    private final Map<String, Integer> terms = new HashMap<>();
+    private final StringBuilder word = new StringBuilder();
+    private int weight = 1;
+
+    /** 上一个中日韩字符，-1 表示前面不是中日韩字符 */
+    private int lastCjk = -1;
+    /** 当前这串中日韩字符的长度 */
+    private int cjkRun;
+
+    /**
+     * 设置之后写入的文本中每个词计入的次数，用于提高标题的权重
+     */
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    @Override
+    public void text(CharSequence text) {
+        for (int i = 0; i < text.length(); ) {
+            int cp = Character.codePointAt(text, i);
+            i += Character.charCount(cp);
+
+            if (isCjk(cp)) {
+                flushWord();
+                if (lastCjk >= 0) {
+                    add(new StringBuilder(4).appendCodePoint(lastCjk).appendCodePoint(cp).toString());
+                }
+                lastCjk = cp;
+                cjkRun++;
+            } else {
+                flushCjk();
+                if (isWordChar(cp)) {
+                    word.appendCodePoint(Character.toLowerCase(cp));
+                } else {
+                    flushWord();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void endBlock() {
+        flushWord();
+        flushCjk();
+    }
+
+    /**
+     * 分词结果：词到加权出现次数
+     */
+    public Map<String, Integer> getTerms() {
+        endBlock();
+        return terms;
+    }
+
+    /**
+     * 字母（L*）或数字（N*，包括 ² Ⅻ 等），与前端的 [\p{L}\p{N}] 一致。
+     * Character.isLetterOrDigit 只包括十进制数字，前端会切出索引中没有的词
+     */
+    static boolean isWordChar(int cp) {
+        if (Character.isLetter(cp)) {
+            return true;
+        }
+        int type = Character.getType(cp);
+        return type == Character.DECIMAL_DIGIT_NUMBER
+                || type == Character.LETTER_NUMBER
+                || type == Character.OTHER_NUMBER;
+    }
+
+    static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private void flushWord() {
+        if (word.length() > 0) {
+            if (word.length() <= MAX_WORD_LENGTH) {
+                add(word.toString());
+            }
+            word.setLength(0);
+        }
+    }
+
+    private void flushCjk() {
+        if (cjkRun == 1) {
+            add(new String(Character.toChars(lastCjk)));
+        }
+        lastCjk = -1;
+        cjkRun = 0;
+    }
+
+    private void add(String term) {
+        terms.merge(term, weight, Integer::sum);
+    }
+}
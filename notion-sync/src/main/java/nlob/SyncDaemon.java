@@ -0,0 +1,210 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Recording;
+import nlob.utils.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻模式：进程保持运行，客户端、缓存和索引留在内存中，
+ * 按固定间隔轮询数据库的最新编辑时间，有变化时才执行增量同步。
+ * 在本机端口上提供 /health 和 /metrics 两个只读接口，返回JSON
+ */
+public class SyncDaemon implements AutoCloseable {
+    public static final int DEFAULT_POLL_SECONDS = 30;
+    public static final int DEFAULT_PORT = 8787;
+    /** 常驻模式下JFR只保留最近一段时间的数据 */
+    private static final Duration JFR_MAX_AGE = Duration.ofHours(1);
+
+    private final NotionSync sync;
+    private final long pollIntervalMillis;
+    private final HttpServer server;
+    private final ScheduledExecutorService scheduler;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Metrics pollMetrics = new Metrics();
+    private final Instant startedAt = Instant.now();
+    private Recording recording;
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong pollErrors = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile int consecutiveFailures;
+    private volatile Instant lastPollAt;
+    private volatile Instant lastSyncAt;
+    private volatile Instant lastSuccessAt;
+    private volatile String lastError;
+
+    /**
+     * @param sync               要同步的数据库，关闭常驻进程时一并关闭
+     * @param pollIntervalMillis 两次轮询之间的间隔
+     * @param port               健康检查接口监听的本机端口
+     */
+    public SyncDaemon(NotionSync sync, long pollIntervalMillis, int port) throws IOException {
+        this.sync = sync;
+        this.pollIntervalMillis = pollIntervalMillis;
+        sync.setKeepWarm(true);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/health", exchange -> respond(exchange, health()));
+        server.createContext("/metrics", exchange -> respond(exchange, metrics()));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sync-daemon-1");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 启动健康检查接口并立即执行第一次同步，之后按间隔轮询
+     *
+     * @param jfrFile 不为null时录制JFR，停止时写出最近一小时的数据
+     */
+    public void start(Path jfrFile) throws Exception {
+        if (jfrFile != null) {
+            recording = SyncEvents.startRecording(jfrFile);
+            recording.setMaxAge(JFR_MAX_AGE);
+        }
+        server.start();
+        Log.info("常驻模式启动，每 %d 秒检查一次，健康检查: http://%s:%d/health",
+                pollIntervalMillis / 1000, server.getAddress().getHostString(), server.getAddress().getPort());
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 阻塞直到常驻进程停止
+     */
+    public void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * 检查数据库是否有变化，有变化时同步。轮询失败只记录，下次继续
+     */
+    private void poll() {
+        polls.incrementAndGet();
+        lastPollAt = Instant.now();
+        boolean changed;
+        try {
+            changed = sync.hasChanges(pollMetrics);
+        } catch (Exception e) {
+            pollErrors.incrementAndGet();
+            Log.warn("检查数据库变化失败: " + e.getMessage());
+            return;
+        }
+        if (!changed) {
+            Log.debug("数据库没有变化");
+            return;
+        }
+
+        syncs.incrementAndGet();
+        lastSyncAt = Instant.now();
+        boolean success;
+        try {
+            success = sync.run();
+        } catch (RuntimeException e) {
+            Log.error("同步失败: " + e.getMessage(), e);
+            success = false;
+        }
+        if (success) {
+            lastSuccessAt = Instant.now();
+            consecutiveFailures = 0;
+            lastError = null;
+            // 只有第一次同步按 --full 全量，之后都是增量
+            sync.setFullSync(false);
+        } else {
+            failures.incrementAndGet();
+            consecutiveFailures++;
+            Metrics metrics = sync.getLastMetrics();
+            lastError = metrics != null ? (String) metrics.get("error") : null;
+        }
+    }
+
+    /**
+     * 最近一次同步成功（或还没有同步）时状态为ok，失败时为failing
+     */
+    private JSONObject health() {
+        JSONObject json = new JSONObject();
+        json.put("status", consecutiveFailures == 0 ? "ok" : "failing");
+        json.put("startedAt", startedAt.toString());
+        json.put("lastPollAt", lastPollAt != null ? lastPollAt.toString() : null);
+        json.put("lastSyncAt", lastSyncAt != null ? lastSyncAt.toString() : null);
+        json.put("lastSuccessAt", lastSuccessAt != null ? lastSuccessAt.toString() : null);
+        json.put("consecutiveFailures", consecutiveFailures);
+        json.put("lastError", lastError);
+        json.put("watermark", sync.getWatermark());
+        return json;
+    }
+
+    private JSONObject metrics() {
+        JSONObject daemon = new JSONObject();
+        daemon.put("uptimeSeconds", Duration.between(startedAt, Instant.now()).getSeconds());
+        daemon.put("pollIntervalMillis", pollIntervalMillis);
+        daemon.put("polls", polls.get());
+        daemon.put("pollErrors", pollErrors.get());
+        daemon.put("syncs", syncs.get());
+        daemon.put("failures", failures.get());
+
+        JSONObject json = new JSONObject();
+        json.put("daemon", daemon);
+        json.put("polling", pollMetrics.toJson());
+        Metrics last = sync.getLastMetrics();
+        json.put("lastSync", last != null ? last.toJson() : null);
+        return json;
+    }
+
+    private void respond(HttpExchange exchange, JSONObject json) throws IOException {
+        int status = 200;
+        if ("failing".equals(json.getString("status"))) {
+            status = 503;
+        }
+        byte[] bytes = JSON.toJSONString(json, JSONWriter.Feature.PrettyFormat, JSONWriter.Feature.WriteNulls)
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 停止轮询，等待正在进行的同步完成后关闭接口和客户端
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.MINUTES)) {
+                Log.warn("等待同步结束超时");
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scheduler.shutdownNow();
+        }
+        server.stop(0);
+        sync.close();
+        if (recording != null) {
+            recording.stop();
+            recording.close();
+        }
+        Log.info("常驻模式已停止");
+        stopped.countDown();
+    }
+}
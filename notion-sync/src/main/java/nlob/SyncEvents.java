@@ -0,0 +1,126 @@
+package nlob;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import nlob.utils.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * 同步过程的JFR自定义事件，用 --jfr=&lt;文件&gt; 录制后可以在JMC中按阶段查看耗时。
+ * 没有开启录制时事件不会提交，开销只有一次是否启用的判断
+ */
+public final class SyncEvents {
+    private static final String CATEGORY = "Notion Sync";
+
+    private SyncEvents() {
+    }
+
+    /**
+     * 开始JFR录制到文件，使用JDK的default配置并开启同步的自定义事件，停止录制时写出文件
+     */
+    public static Recording startRecording(Path file) throws IOException, ParseException {
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName("notion-sync");
+        recording.enable(ApiCall.class);
+        recording.enable(BlockTreeFetch.class);
+        recording.enable(Render.class);
+        recording.enable(FileWrite.class);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        recording.setDestination(file);
+        recording.start();
+        Log.info("JFR录制到: " + file);
+        return recording;
+    }
+
+    /**
+     * 一次API调用，从第一次发送到响应体读取完毕，包括所有重试
+     */
+    @Name("nlob.ApiCall")
+    @Label("Notion API Call")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class ApiCall extends Event {
+        @Label("Endpoint")
+        public String endpoint;
+
+        @Label("Path")
+        public String path;
+
+        @Label("Block Id")
+        @Description("子块请求的块id，数据库查询为空")
+        public String blockId;
+
+        @Label("Status")
+        public int status;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Retries")
+        public int retries;
+    }
+
+    /**
+     * 获取一棵子树：一个块的子块以及它们的所有嵌套子块
+     */
+    @Name("nlob.BlockTreeFetch")
+    @Label("Block Tree Fetch")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class BlockTreeFetch extends Event {
+        @Label("Block Id")
+        public String blockId;
+
+        @Label("Depth")
+        public int depth;
+
+        @Label("Children")
+        @Description("直接子块数")
+        public int children;
+    }
+
+    /**
+     * 把一篇文章渲染为Markdown或HTML并写出
+     */
+    @Name("nlob.Render")
+    @Label("Render")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Render extends Event {
+        @Label("Post Id")
+        public String postId;
+
+        @Label("Format")
+        public String format;
+    }
+
+    /**
+     * 输出阶段写出一个文件，内容未变化时不替换
+     */
+    @Name("nlob.FileWrite")
+    @Label("File Write")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class FileWrite extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Changed")
+        public boolean changed;
+    }
+}
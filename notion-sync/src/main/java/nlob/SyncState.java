@@ -0,0 +1,72 @@
+package nlob;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import nlob.utils.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 持久化的同步状态：记录已处理页面的最大 last_edited_time（UTC水位线），
+ * 下次只查询水位线之后编辑过的页面
+ */
+public class SyncState {
+    static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+    private String watermark;
+
+    private SyncState(Path file, String watermark) {
+        this.file = file;
+        this.watermark = watermark;
+    }
+
+    /**
+     * 加载同步状态，文件不存在或无法解析时水位线为空（全量同步）
+     */
+    public static SyncState load(Path file) {
+        try {
+            if (Files.exists(file)) {
+                JSONObject root = JSON.parseObject(Files.readString(file));
+                if (root != null && root.getIntValue("version") == FORMAT_VERSION) {
+                    String watermark = root.getString("watermark");
+                    Log.info("同步水位线: " + watermark);
+                    return new SyncState(file, watermark);
+                }
+            }
+        } catch (Exception e) {
+            Log.warn("无法加载同步状态，将全量同步: " + e.getMessage());
+        }
+        return new SyncState(file, null);
+    }
+
+    /**
+     * UTC水位线（Notion ISO 8601格式），为null表示尚未同步过
+     */
+    public String getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * 推进水位线，只会向后移动
+     */
+    public void advance(String processedUpTo) {
+        if (processedUpTo != null && (watermark == null || processedUpTo.compareTo(watermark) > 0)) {
+            watermark = processedUpTo;
+        }
+    }
+
+    public void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        JSONObject root = new JSONObject();
+        root.put("version", FORMAT_VERSION);
+        root.put("watermark", watermark);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, JSON.toJSONString(root, JSONWriter.Feature.PrettyFormat));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,6 +1,7 @@
 package nlob.entity;
 
 import lombok.Data;
+import nlob.entity.block.Block;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -10,7 +11,8 @@ import java.util.ArrayList;
 public class BlogPostDO {
     private String id;
     private String title;
-    private String content;
+    /** 页面的块树，写文件时直接渲染为Markdown */
+    private List<Block> blocks;
     private LocalDateTime createdTime;
     private LocalDateTime lastEditedTime;
     private String excerpt;
@@ -0,0 +1,20 @@
+package nlob.entity;
+
+import lombok.Data;
+
+/**
+ * blogs/index.json 中的一篇文章
+ */
+@Data
+public class IndexEntry {
+    private String id;
+    private String filename;
+    private String title;
+    /** 创建日期 yyyy-MM-dd，索引按它倒序排列 */
+    private String date;
+    /** 最后编辑日期 yyyy-MM-dd */
+    private String update;
+    private String excerpt;
+    /** 逗号分隔的标签，没有标签时为null */
+    private String tags;
+}
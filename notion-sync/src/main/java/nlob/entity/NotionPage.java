@@ -0,0 +1,15 @@
+package nlob.entity;
+
+import com.alibaba.fastjson2.JSONObject;
+import lombok.Data;
+
+/**
+ * 数据库查询结果中页面的精简表示
+ */
+@Data
+public class NotionPage {
+    private String id;
+    private String createdTime;
+    private String lastEditedTime;
+    private JSONObject properties;
+}
@@ -0,0 +1,16 @@
+package nlob.entity;
+
+import lombok.Data;
+
+/**
+ * 多数据库配置中的一个数据源
+ */
+@Data
+public class SyncSource {
+    /** 日志中显示的名称，例如 blog、notes */
+    private String name;
+    /** Notion数据库id，可以写成 ${环境变量名} 从环境变量读取 */
+    private String databaseId;
+    /** 输出目录，各数据源不能相同 */
+    private String outputDir;
+}
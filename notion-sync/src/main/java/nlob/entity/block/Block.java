@@ -0,0 +1,206 @@
+package nlob.entity.block;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 类型化的块模型。每种块的内容是不可变字段，子块在获取块树时填充
+ */
+@Getter
+public abstract sealed class Block implements Cloneable {
+    private final String id;
+    private final BlockType type;
+    private final boolean hasChildren;
+    private final String lastEditedTime;
+
+    /** 已获取的子块，按文档顺序排列 */
+    @Setter
+    private List<Block> children = Collections.emptyList();
+
+    protected Block(Header header, BlockType type) {
+        this.id = header.id();
+        this.type = type;
+        this.hasChildren = header.hasChildren();
+        this.lastEditedTime = header.lastEditedTime();
+    }
+
+    /**
+     * 各类块共有的字段
+     */
+    public record Header(String id, boolean hasChildren, String lastEditedTime) {
+    }
+
+    /**
+     * 复制块，内容字段不可变，可以共享；子块不复制
+     */
+    public Block copy() {
+        try {
+            Block copy = (Block) clone();
+            copy.children = Collections.emptyList();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * 只有富文本的块：段落、标题、列表项、引用、折叠块
+     */
+    @Getter
+    public static final class Text extends Block {
+        private final List<RichText> richText;
+
+        public Text(Header header, BlockType type, List<RichText> richText) {
+            super(header, type);
+            this.richText = richText;
+        }
+    }
+
+    @Getter
+    public static final class ToDo extends Block {
+        private final List<RichText> richText;
+        private final boolean checked;
+
+        public ToDo(Header header, List<RichText> richText, boolean checked) {
+            super(header, BlockType.TO_DO);
+            this.richText = richText;
+            this.checked = checked;
+        }
+    }
+
+    @Getter
+    public static final class Code extends Block {
+        private final List<RichText> richText;
+        private final String language;
+
+        public Code(Header header, List<RichText> richText, String language) {
+            super(header, BlockType.CODE);
+            this.richText = richText;
+            this.language = language;
+        }
+    }
+
+    @Getter
+    public static final class Callout extends Block {
+        private final List<RichText> richText;
+        /** emoji图标，没有时为null */
+        private final String icon;
+
+        public Callout(Header header, List<RichText> richText, String icon) {
+            super(header, BlockType.CALLOUT);
+            this.richText = richText;
+            this.icon = icon;
+        }
+    }
+
+    @Getter
+    public static final class ChildPage extends Block {
+        private final String title;
+
+        public ChildPage(Header header, String title) {
+            super(header, BlockType.CHILD_PAGE);
+            this.title = title;
+        }
+    }
+
+    @Getter
+    public static final class Image extends Block {
+        /** file（Notion托管，链接会过期）或 external */
+        private final String source;
+        private final String url;
+        private final List<RichText> caption;
+        /** 下载到本地后的站点相对路径，未下载时为null */
+        @Setter
+        private String localPath;
+        /** 本地图片的尺寸和缩小版本，无法解码或未下载时为null */
+        @Setter
+        private ImageInfo info;
+
+        public Image(Header header, String source, String url, List<RichText> caption) {
+            super(header, BlockType.IMAGE);
+            this.source = source;
+            this.url = url;
+            this.caption = caption;
+        }
+
+        /**
+         * 输出时使用的地址：优先使用本地路径，Notion托管的链接会过期
+         */
+        public String getDisplayUrl() {
+            return localPath != null ? localPath : url;
+        }
+    }
+
+    @Getter
+    public static final class Table extends Block {
+        private final int tableWidth;
+        private final boolean hasColumnHeader;
+        private final boolean hasRowHeader;
+
+        public Table(Header header, int tableWidth, boolean hasColumnHeader, boolean hasRowHeader) {
+            super(header, BlockType.TABLE);
+            this.tableWidth = tableWidth;
+            this.hasColumnHeader = hasColumnHeader;
+            this.hasRowHeader = hasRowHeader;
+        }
+    }
+
+    @Getter
+    public static final class TableRow extends Block {
+        private final List<List<RichText>> cells;
+
+        public TableRow(Header header, List<List<RichText>> cells) {
+            super(header, BlockType.TABLE_ROW);
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * 只用于布局、本身没有内容的块：分栏、分隔线
+     */
+    public static final class Layout extends Block {
+        public Layout(Header header, BlockType type) {
+            super(header, type);
+        }
+    }
+
+    @Getter
+    public static final class Equation extends Block {
+        private final String expression;
+
+        public Equation(Header header, String expression) {
+            super(header, BlockType.EQUATION);
+            this.expression = expression;
+        }
+    }
+
+    @Getter
+    public static final class Bookmark extends Block {
+        private final String url;
+        private final List<RichText> caption;
+
+        public Bookmark(Header header, String url, List<RichText> caption) {
+            super(header, BlockType.BOOKMARK);
+            this.url = url;
+            this.caption = caption;
+        }
+    }
+
+    /**
+     * 暂不支持的块，保留接口类型名和可能存在的富文本
+     */
+    @Getter
+    public static final class Unsupported extends Block {
+        private final String apiType;
+        private final List<RichText> richText;
+
+        public Unsupported(Header header, String apiType, List<RichText> richText) {
+            super(header, BlockType.UNSUPPORTED);
+            this.apiType = apiType;
+            this.richText = richText;
+        }
+    }
+}
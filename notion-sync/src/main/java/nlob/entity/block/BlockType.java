@@ -0,0 +1,69 @@
+package nlob.entity.block;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 块类型。解码时把接口返回的类型名映射为枚举，之后按枚举分发，不再比较字符串
+ */
+public enum BlockType {
+    PARAGRAPH("paragraph", false),
+    HEADING_1("heading_1", false),
+    HEADING_2("heading_2", false),
+    HEADING_3("heading_3", false),
+    BULLETED_LIST_ITEM("bulleted_list_item", true),
+    NUMBERED_LIST_ITEM("numbered_list_item", true),
+    TO_DO("to_do", true),
+    TOGGLE("toggle", true),
+    QUOTE("quote", true),
+    CALLOUT("callout", true),
+    CODE("code", false),
+    CHILD_PAGE("child_page", true),
+    IMAGE("image", false),
+    TABLE("table", true),
+    TABLE_ROW("table_row", false),
+    COLUMN_LIST("column_list", true),
+    COLUMN("column", true),
+    DIVIDER("divider", false),
+    EQUATION("equation", false),
+    BOOKMARK("bookmark", false),
+    UNSUPPORTED("unsupported", false);
+
+    private static final Map<String, BlockType> BY_API_NAME = new HashMap<>();
+
+    static {
+        for (BlockType type : values()) {
+            BY_API_NAME.put(type.apiName, type);
+        }
+    }
+
+    private final String apiName;
+    private final boolean nestable;
+
+    BlockType(String apiName, boolean nestable) {
+        this.apiName = apiName;
+        this.nestable = nestable;
+    }
+
+    /**
+     * Notion接口中的类型名
+     */
+    public String apiName() {
+        return apiName;
+    }
+
+    /**
+     * 该类型的子块是否需要获取并转换
+     */
+    public boolean isNestable() {
+        return nestable;
+    }
+
+    /**
+     * 按接口类型名查找，未知类型返回 UNSUPPORTED
+     */
+    public static BlockType of(String apiName) {
+        BlockType type = BY_API_NAME.get(apiName);
+        return type != null ? type : UNSUPPORTED;
+    }
+}
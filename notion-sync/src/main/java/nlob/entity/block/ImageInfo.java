@@ -0,0 +1,33 @@
+package nlob.entity.block;
+
+import java.util.List;
+
+/**
+ * 本地图片的原始尺寸和缩小后的版本
+ *
+ * @param width    原图宽度（像素）
+ * @param height   原图高度（像素）
+ * @param variants 按宽度递增排列的缩小版本，不含原图
+ */
+public record ImageInfo(int width, int height, List<Variant> variants) {
+    /** 正文区域最宽约1024px，窄屏时占满视口宽度 */
+    public static final String SIZES = "(max-width: 1024px) 100vw, 1024px";
+
+    /**
+     * 生成 srcset 属性值，包含所有缩小版本和原图
+     */
+    public String srcset(String originalPath) {
+        StringBuilder srcset = new StringBuilder();
+        for (Variant variant : variants) {
+            srcset.append(variant.path()).append(' ').append(variant.width()).append("w, ");
+        }
+        return srcset.append(originalPath).append(' ').append(width).append('w').toString();
+    }
+
+    /**
+     * @param width 缩小后的宽度（像素）
+     * @param path  站点相对路径
+     */
+    public record Variant(int width, String path) {
+    }
+}
@@ -0,0 +1,53 @@
+package nlob.entity.block;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一段富文本。样式标记压缩在一个int里，颜色名做了驻留
+ *
+ * @param kind        text / equation / mention
+ * @param plainText   纯文本；公式为表达式本身
+ * @param href        链接，没有时为null
+ * @param annotations 样式标记位，见 BOLD 等常量
+ * @param color       颜色名，默认颜色为"default"
+ */
+public record RichText(Kind kind, String plainText, String href, int annotations, String color) {
+    public static final int BOLD = 1;
+    public static final int ITALIC = 1 << 1;
+    public static final int STRIKETHROUGH = 1 << 2;
+    public static final int UNDERLINE = 1 << 3;
+    public static final int CODE = 1 << 4;
+
+    public static final String DEFAULT_COLOR = "default";
+
+    private static final Map<String, String> COLORS = new ConcurrentHashMap<>();
+
+    public enum Kind {
+        TEXT, EQUATION, MENTION;
+
+        public static Kind of(String name) {
+            if ("equation".equals(name)) return EQUATION;
+            if ("mention".equals(name)) return MENTION;
+            return TEXT;
+        }
+
+        public String apiName() {
+            return name().toLowerCase();
+        }
+    }
+
+    public boolean has(int flag) {
+        return (annotations & flag) != 0;
+    }
+
+    /**
+     * 驻留颜色名，同一种颜色在所有富文本中共享一个字符串
+     */
+    public static String internColor(String color) {
+        if (color == null || DEFAULT_COLOR.equals(color)) {
+            return DEFAULT_COLOR;
+        }
+        return COLORS.computeIfAbsent(color, c -> c);
+    }
+}
@@ -0,0 +1,27 @@
+package nlob.utils;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class FileUtil {
+    /**
+     * 在目录中创建一个新的临时文件，用于写完后原子替换目标文件。
+     * Files.createTempFile 创建的文件权限为0600，移动后目标文件也只有属主可读，
+     * 这里按进程的umask创建，与直接写目标文件的权限一致
+     *
+     * @param prefix 文件名前缀，建议以点开头，避免被当作输出文件
+     */
+    public static Path createTempFile(Path dir, String prefix) throws IOException {
+        while (true) {
+            Path temp = dir.resolve(prefix + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // 名称冲突时换一个随机数重试
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package nlob.utils;
+
+import java.io.PrintStream;
+
+/**
+ * 分级日志。默认INFO级别，只输出每次同步的汇总信息；
+ * 每个页面、每个块的过程信息为DEBUG级别，--verbose 时才输出。
+ * 带参数的消息按 String.format 格式化，级别未启用时不做格式化。
+ * INFO及以下输出到标准输出，WARN和ERROR输出到标准错误
+ */
+public final class Log {
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static volatile Level level = Level.INFO;
+
+    private Log() {
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level level) {
+        Log.level = level;
+    }
+
+    public static boolean isDebugEnabled() {
+        return enabled(Level.DEBUG);
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message);
+    }
+
+    public static void debug(String format, Object... args) {
+        log(Level.DEBUG, format, args);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public static void info(String format, Object... args) {
+        log(Level.INFO, format, args);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public static void warn(String format, Object... args) {
+        log(Level.WARN, format, args);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    /**
+     * 输出错误和异常堆栈
+     */
+    public static void error(String message, Throwable e) {
+        if (enabled(Level.ERROR)) {
+            System.err.println(message);
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean enabled(Level messageLevel) {
+        return messageLevel.compareTo(level) >= 0;
+    }
+
+    private static void log(Level messageLevel, String message) {
+        if (enabled(messageLevel)) {
+            stream(messageLevel).println(message);
+        }
+    }
+
+    private static void log(Level messageLevel, String format, Object... args) {
+        if (enabled(messageLevel)) {
+            stream(messageLevel).println(String.format(format, args));
+        }
+    }
+
+    private static PrintStream stream(Level messageLevel) {
+        return messageLevel.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+    }
+}
@@ -21,6 +21,15 @@ public class TimeUtil {
 
         return sinceTimeString;
     }
+    /**
+     * 将 Notion API 的 UTC 时间向前回退指定分钟数，格式不变
+     */
+    public static String minusMinutesUTC(String utcDateTimeStr, long minutes) {
+        Instant instant = Instant.parse(utcDateTimeStr).minus(Duration.ofMinutes(minutes));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+        return formatter.format(instant);
+    }
+
     /**
      * 解析 Notion API 的 UTC 时间并转换为北京时间
      */
@@ -36,7 +45,7 @@ public class TimeUtil {
             return beijingTime.toLocalDateTime();
 
         } catch (Exception e) {
-            System.err.println("日期解析失败: " + utcDateTimeStr + " - " + e.getMessage());
+            Log.warn("日期解析失败: " + utcDateTimeStr + " - " + e.getMessage());
             return LocalDateTime.now(); // 返回当前北京时间作为备用
         }
     }